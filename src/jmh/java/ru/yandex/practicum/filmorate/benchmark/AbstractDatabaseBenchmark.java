@@ -0,0 +1,78 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+
+@State(Scope.Benchmark)
+public abstract class AbstractDatabaseBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int films;
+
+    @Param({"10000"})
+    public int users;
+
+    @Param({"100000"})
+    public int likes;
+
+    @Param({"20"})
+    public int friendsPerUser;
+
+    protected ConfigurableApplicationContext context;
+
+    @Setup
+    public void startApplication() throws Exception {
+        BenchmarkDatabase.DatasetSize size = new BenchmarkDatabase.DatasetSize(films, users, likes, friendsPerUser);
+        String[] properties = contextProperties();
+        context = BenchmarkDatabase.startContext(createDatabase(size), webApplicationType(), properties);
+        verifyProperties(properties);
+        afterStart();
+    }
+
+    @TearDown
+    public void stopApplication() throws Exception {
+        if (context != null) {
+            context.close();
+        }
+        afterStop();
+    }
+
+    protected String createDatabase(BenchmarkDatabase.DatasetSize size) throws Exception {
+        return BenchmarkDatabase.createSeeded(size);
+    }
+
+    protected WebApplicationType webApplicationType() {
+        return WebApplicationType.NONE;
+    }
+
+    protected String[] contextProperties() {
+        return new String[0];
+    }
+
+    protected void afterStart() {
+    }
+
+    protected void afterStop() throws Exception {
+    }
+
+    /**
+     * Параметры бенчмарка должны дойти до контекста: иначе обе ветки сравнения измеряют одно и то же.
+     */
+    private void verifyProperties(String[] properties) {
+        for (String property : properties) {
+            int separator = property.indexOf('=');
+            String name = property.substring(0, separator);
+            String expected = property.substring(separator + 1);
+            String actual = context.getEnvironment().getProperty(name);
+            if (!expected.equals(actual)) {
+                throw new IllegalStateException("Свойство " + name + " перекрыто: ожидалось '" + expected +
+                        "', в контексте '" + actual + "'");
+            }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Встроенная H2 с синтетическими данными и поднятый поверх неё контекст приложения.
+ * База заполняется до старта контекста, чтобы индексы в памяти прогревались на полном наборе данных.
+ */
+public final class BenchmarkDatabase {
+    private static final String USERNAME = "sa";
+    private static final String PASSWORD = "password";
+
+    private BenchmarkDatabase() {
+    }
+
+    public static String createSeeded(DatasetSize size) throws SQLException {
+        return createSeeded(size, "jdbc:h2:mem:bench" + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
+    }
+
+    /**
+     * Заполняет базу по указанному URL, например файловую — там, где важна работа кэша страниц.
+     */
+    public static String createSeeded(DatasetSize size, String url) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(url, USERNAME, PASSWORD)) {
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("schema.sql"));
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("data.sql"));
+
+            execute(connection, "INSERT INTO users (user_id, email, login, name, birthday) " +
+                    "SELECT X, 'user' || X || '@mail.ru', 'user' || X, 'User ' || X, DATE '1990-01-01' " +
+                    "FROM SYSTEM_RANGE(1, ?)", size.users());
+
+            execute(connection, "INSERT INTO films (film_id, name, description, release_date, duration, mpa_id) " +
+                    "SELECT X, 'Film ' || X, 'Description ' || X, " +
+                    "DATEADD('DAY', MOD(X, 20000), DATE '1960-01-01'), 60 + MOD(X, 120), 1 + MOD(X, 5) " +
+                    "FROM SYSTEM_RANGE(1, ?)", size.films());
+
+            execute(connection, "INSERT INTO film_genres (film_id, genre_id) " +
+                    "SELECT X, 1 + MOD(X, 6) FROM SYSTEM_RANGE(1, ?)", size.films());
+
+            // Каждая пара (фильм, пользователь) уникальна, пока likes <= films * users
+            execute(connection, "INSERT INTO likes (film_id, user_id) " +
+                    "SELECT 1 + MOD(X, ?), 1 + MOD(X / ?, ?) FROM SYSTEM_RANGE(0, ?)",
+                    size.films(), size.films(), size.users(), size.likes() - 1);
+
+            execute(connection, "UPDATE films f SET likes_count = " +
+                    "(SELECT COUNT(*) FROM likes l WHERE l.film_id = f.film_id)");
+
+            // У каждого пользователя friendsPerUser друзей со смещениями 1..friendsPerUser
+            execute(connection, "INSERT INTO friendships (user_id, friend_id, status) " +
+                    "SELECT 1 + MOD(X, ?), 1 + MOD(MOD(X, ?) + 1 + X / ?, ?), 'CONFIRMED' " +
+                    "FROM SYSTEM_RANGE(0, ?)",
+                    size.users(), size.users(), size.users(), size.users(),
+                    (long) size.users() * size.friendsPerUser() - 1);
+        }
+
+        return url;
+    }
+
+    public static ConfigurableApplicationContext startContext(String url, String... extraProperties) {
+        return startContext(url, WebApplicationType.NONE, extraProperties);
+    }
+
+    /**
+     * Свойства передаются аргументами командной строки: у свойств по умолчанию приоритет ниже,
+     * чем у {@code application.properties}, и они не перекрыли бы URL и настройки из него.
+     */
+    public static ConfigurableApplicationContext startContext(String url, WebApplicationType webApplicationType,
+                                                              String... extraProperties) {
+        List<String> args = new ArrayList<>(List.of(
+                "spring.datasource.url=" + url,
+                "spring.sql.init.mode=never",
+                "spring.jpa.hibernate.ddl-auto=none",
+                "logging.level.root=WARN"));
+        args.addAll(Arrays.asList(extraProperties));
+        return new SpringApplicationBuilder(FilmorateApplication.class)
+                .web(webApplicationType)
+                .logStartupInfo(false)
+                .run(args.stream().map(property -> "--" + property).toArray(String[]::new));
+    }
+
+    private static void execute(Connection connection, String sql, Object... params) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            for (int i = 0; i < params.length; i++) {
+                ps.setObject(i + 1, params[i]);
+            }
+            ps.executeUpdate();
+        }
+    }
+
+    public record DatasetSize(int films, int users, int likes, int friendsPerUser) {
+    }
+}
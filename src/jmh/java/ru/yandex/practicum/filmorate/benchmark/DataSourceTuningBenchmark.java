@@ -0,0 +1,87 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.FileSystemUtils;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.FilmDataLoader;
+import ru.yandex.practicum.filmorate.storage.FilmDbStorageImpl;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пул и кэши H2 по умолчанию против профиля {@code tuned} под конкурентной нагрузкой.
+ * База файловая: у встроенной в память H2 кэша страниц нет, и его размер ни на что не влияет.
+ */
+@Fork(1)
+@Threads(16)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class DataSourceTuningBenchmark extends AbstractDatabaseBenchmark {
+    private static final int PAGE_SIZE = 50;
+    private static final int BATCH_SIZE = 100;
+
+    @Param({"false", "true"})
+    public boolean tuned;
+
+    private Path directory;
+    private FilmDbStorageImpl filmStorage;
+    private FilmDataLoader filmDataLoader;
+
+    @Override
+    protected String createDatabase(BenchmarkDatabase.DatasetSize size) throws Exception {
+        directory = Files.createTempDirectory("filmorate-bench");
+        return BenchmarkDatabase.createSeeded(size, "jdbc:h2:file:" + directory.resolve("filmorate"));
+    }
+
+    @Override
+    protected String[] contextProperties() {
+        return new String[]{"filmorate.datasource.tuning.enabled=" + tuned};
+    }
+
+    @Override
+    protected void afterStart() {
+        filmStorage = context.getBean(FilmDbStorageImpl.class);
+        filmDataLoader = context.getBean(FilmDataLoader.class);
+    }
+
+    @Override
+    protected void afterStop() throws Exception {
+        if (directory != null) {
+            FileSystemUtils.deleteRecursively(directory);
+        }
+    }
+
+    @Benchmark
+    public List<Film> getFilmsPage() {
+        long afterId = ThreadLocalRandom.current().nextLong(Math.max(1, films - PAGE_SIZE));
+        return filmStorage.getFilms(afterId, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public FilmDataLoader.FilmRelations loadRelations() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<Long> filmIds = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            filmIds.add(1 + random.nextLong(films));
+        }
+        return filmDataLoader.loadRelations(filmIds);
+    }
+}
@@ -0,0 +1,61 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.service.FilmDataLoader;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class FilmDataLoaderBenchmark extends AbstractDatabaseBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    public int batchSize;
+
+    @Param({"false", "true"})
+    public boolean parallelEnrichment;
+
+    private FilmDataLoader filmDataLoader;
+    private List<Long> filmIds;
+
+    @Override
+    protected String[] contextProperties() {
+        return new String[]{"filmorate.enrichment.parallel=" + parallelEnrichment};
+    }
+
+    @Override
+    protected void afterStart() {
+        filmDataLoader = context.getBean(FilmDataLoader.class);
+        filmIds = new ArrayList<>(batchSize);
+        for (long id = 1; id <= Math.min(batchSize, films); id++) {
+            filmIds.add(id);
+        }
+    }
+
+    @Benchmark
+    public Map<Long, Set<Long>> loadLikesForFilms() {
+        return filmDataLoader.loadLikesForFilms(filmIds);
+    }
+
+    @Benchmark
+    public FilmDataLoader.FilmRelations loadRelations() {
+        return filmDataLoader.loadRelations(filmIds);
+    }
+}
@@ -0,0 +1,58 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Считает через JFR случаи, когда виртуальный поток заблокировался, не отпустив поток-носитель.
+ * Место закрепления — первый кадр стека вне JDK: так видно, чей это код — Hikari, драйвера H2 или приложения.
+ */
+public final class PinningRecorder implements AutoCloseable {
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+
+    private final RecordingStream stream = new RecordingStream();
+    private final Map<String, LongAdder> pinsBySite = new ConcurrentHashMap<>();
+
+    private PinningRecorder() {
+        stream.enable(PINNED_EVENT).withThreshold(Duration.ZERO).withStackTrace();
+        stream.onEvent(PINNED_EVENT, this::record);
+    }
+
+    public static PinningRecorder start() {
+        PinningRecorder recorder = new PinningRecorder();
+        recorder.stream.startAsync();
+        return recorder;
+    }
+
+    public Map<String, Long> pinsBySite() {
+        Map<String, Long> result = new TreeMap<>();
+        pinsBySite.forEach((site, count) -> result.put(site, count.sum()));
+        return result;
+    }
+
+    @Override
+    public void close() {
+        stream.close();
+    }
+
+    private void record(RecordedEvent event) {
+        String site = "неизвестно";
+        if (event.getStackTrace() != null) {
+            for (RecordedFrame frame : event.getStackTrace().getFrames()) {
+                String type = frame.getMethod().getType().getName();
+                if (!type.startsWith("java.") && !type.startsWith("jdk.") && !type.startsWith("sun.")) {
+                    site = type + "." + frame.getMethod().getName();
+                    break;
+                }
+            }
+        }
+        pinsBySite.computeIfAbsent(site, key -> new LongAdder()).increment();
+    }
+}
@@ -0,0 +1,108 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пропускная способность HTTP-слоя на потоках платформы и на виртуальных потоках.
+ * Одна операция — волна из {@code concurrency} одновременных запросов к /films и /users,
+ * поэтому запросов в секунду = результат × {@code concurrency}.
+ * На виртуальных потоках по окончании печатаются места закреплений потоков-носителей.
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class RequestThreadingBenchmark extends AbstractDatabaseBenchmark {
+
+    @Param({"false", "true"})
+    public boolean virtualThreads;
+
+    @Param({"100", "1000"})
+    public int concurrency;
+
+    private ExecutorService clientExecutor;
+    private HttpClient client;
+    private String baseUrl;
+    private PinningRecorder pinningRecorder;
+
+    @Override
+    protected WebApplicationType webApplicationType() {
+        return WebApplicationType.SERVLET;
+    }
+
+    @Override
+    protected String[] contextProperties() {
+        return new String[]{
+                "server.port=0",
+                "spring.threads.virtual.enabled=" + virtualThreads
+        };
+    }
+
+    @Override
+    protected void afterStart() {
+        if (virtualThreads) {
+            pinningRecorder = PinningRecorder.start();
+        }
+        baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        clientExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(clientExecutor)
+                .build();
+    }
+
+    @TearDown
+    public void closeClient() {
+        if (client != null) {
+            client.close();
+            clientExecutor.close();
+        }
+        if (pinningRecorder != null) {
+            pinningRecorder.close();
+            System.out.println("Закрепления потоков-носителей по местам: " + pinningRecorder.pinsBySite());
+        }
+    }
+
+    @Benchmark
+    public int requestWave() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        CompletableFuture<?>[] responses = new CompletableFuture<?>[concurrency];
+        for (int i = 0; i < concurrency; i++) {
+            String path = i % 2 == 0
+                    ? "/films/popular?count=10"
+                    : "/users/" + (1 + random.nextInt(users)) + "/friends";
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path)).GET().build();
+            responses[i] = client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .thenAccept(response -> {
+                        if (response.statusCode() != 200) {
+                            throw new IllegalStateException("HTTP " + response.statusCode() + " для " + path);
+                        }
+                    });
+        }
+        CompletableFuture.allOf(responses).join();
+        return responses.length;
+    }
+}
@@ -0,0 +1,28 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.yandex.practicum.filmorate.cache.BoundedCache;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.Duration;
+
+@Configuration
+public class CacheConfig {
+
+    @Bean
+    public BoundedCache<Long, Film> filmCache(
+            @Value("${filmorate.cache.films.max-size:10000}") int maxSize,
+            @Value("${filmorate.cache.films.ttl:10m}") Duration ttl) {
+        return new BoundedCache<>("films", maxSize, ttl);
+    }
+
+    @Bean
+    public BoundedCache<Long, User> userCache(
+            @Value("${filmorate.cache.users.max-size:50000}") int maxSize,
+            @Value("${filmorate.cache.users.ttl:10m}") Duration ttl) {
+        return new BoundedCache<>("users", maxSize, ttl);
+    }
+}
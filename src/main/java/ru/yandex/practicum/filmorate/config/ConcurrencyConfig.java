@@ -0,0 +1,33 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Configuration
+public class ConcurrencyConfig {
+
+    /**
+     * Пул для параллельной загрузки порций {@link ru.yandex.practicum.filmorate.service.BatchLoader}.
+     * Создаётся, только если параллельный режим включён.
+     */
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnProperty(name = "filmorate.batch.parallel", havingValue = "true")
+    public ExecutorService batchLoaderExecutor(@Value("${filmorate.batch.parallelism:4}") int parallelism) {
+        return Executors.newFixedThreadPool(parallelism,
+                Thread.ofPlatform().name("batch-loader-", 0).daemon(true).factory());
+    }
+
+    /**
+     * Виртуальный поток на каждую подзагрузку при обогащении фильмов: задачи только ждут БД,
+     * а их параллелизм всё равно ограничен пулом соединений.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService filmEnrichmentExecutor() {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("film-enrichment-", 0).factory());
+    }
+}
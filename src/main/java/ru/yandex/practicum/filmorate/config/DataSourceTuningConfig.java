@@ -0,0 +1,27 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+/**
+ * Настройка источника данных под встроенную H2. Включается профилем {@code tuned}
+ * ({@code application-tuned.properties}) или свойством {@code filmorate.datasource.tuning.enabled}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "filmorate.datasource.tuning.enabled", havingValue = "true")
+public class DataSourceTuningConfig {
+
+    @Bean
+    public static DataSourceTuningPostProcessor dataSourceTuningPostProcessor(
+            Environment environment,
+            @Value("${filmorate.datasource.pool.connections-per-core:2}") int connectionsPerCore,
+            @Value("${filmorate.datasource.h2.cache-heap-percent:20}") int h2CacheHeapPercent,
+            @Value("${filmorate.datasource.h2.query-cache-size:64}") int h2QueryCacheSize) {
+        boolean poolSizeConfigured = environment.containsProperty("spring.datasource.hikari.maximum-pool-size");
+        return new DataSourceTuningPostProcessor(connectionsPerCore, poolSizeConfigured,
+                h2CacheHeapPercent, h2QueryCacheSize);
+    }
+}
@@ -0,0 +1,85 @@
+package ru.yandex.practicum.filmorate.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.core.Ordered;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Настраивает пул Hikari до его запуска: размер пула считается от числа ядер,
+ * а к URL встроенной H2 добавляются размеры кэша страниц MVStore и кэша разобранных запросов.
+ * Выполняется после привязки {@code spring.datasource.hikari.*}, поэтому явно заданные там значения не теряются.
+ */
+@Slf4j
+public class DataSourceTuningPostProcessor implements BeanPostProcessor, Ordered {
+    private static final int MIN_POOL_SIZE = 2;
+
+    private final int connectionsPerCore;
+    private final boolean poolSizeConfigured;
+    private final int h2CacheHeapPercent;
+    private final int h2QueryCacheSize;
+
+    public DataSourceTuningPostProcessor(int connectionsPerCore, boolean poolSizeConfigured,
+                                         int h2CacheHeapPercent, int h2QueryCacheSize) {
+        this.connectionsPerCore = connectionsPerCore;
+        this.poolSizeConfigured = poolSizeConfigured;
+        this.h2CacheHeapPercent = h2CacheHeapPercent;
+        this.h2QueryCacheSize = h2QueryCacheSize;
+    }
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        if (!(bean instanceof HikariDataSource dataSource)) {
+            return bean;
+        }
+
+        if (!poolSizeConfigured) {
+            int poolSize = poolSize(Runtime.getRuntime().availableProcessors(), connectionsPerCore);
+            // Пул постоянного размера: соединения H2 дёшевы, а пересоздание сбрасывает кэш запросов сессии
+            dataSource.setMaximumPoolSize(poolSize);
+            dataSource.setMinimumIdle(poolSize);
+        }
+
+        String url = dataSource.getJdbcUrl();
+        if (url != null && url.startsWith("jdbc:h2:")) {
+            Map<String, Object> settings = new LinkedHashMap<>();
+            settings.put("CACHE_SIZE", h2CacheSizeKb(Runtime.getRuntime().maxMemory(), h2CacheHeapPercent));
+            settings.put("QUERY_CACHE_SIZE", h2QueryCacheSize);
+            dataSource.setJdbcUrl(withSettings(url, settings));
+        }
+        log.info("Пул соединений настроен: {} соединений, URL {}", dataSource.getMaximumPoolSize(),
+                dataSource.getJdbcUrl());
+        return dataSource;
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.LOWEST_PRECEDENCE;
+    }
+
+    public static int poolSize(int cores, int connectionsPerCore) {
+        return Math.max(MIN_POOL_SIZE, cores * connectionsPerCore);
+    }
+
+    public static long h2CacheSizeKb(long maxHeapBytes, int heapPercent) {
+        return maxHeapBytes / 100 * heapPercent / 1024;
+    }
+
+    /**
+     * Добавляет к URL H2 настройки, которых в нём ещё нет: заданное в URL явно важнее профиля.
+     */
+    public static String withSettings(String url, Map<String, Object> settings) {
+        String upperUrl = url.toUpperCase(Locale.ROOT);
+        StringBuilder result = new StringBuilder(url);
+        settings.forEach((name, value) -> {
+            if (!upperUrl.contains(";" + name + "=")) {
+                result.append(';').append(name).append('=').append(value);
+            }
+        });
+        return result.toString();
+    }
+}
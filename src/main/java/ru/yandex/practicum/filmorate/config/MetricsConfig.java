@@ -0,0 +1,22 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.yandex.practicum.filmorate.metrics.MethodTimingPostProcessor;
+import ru.yandex.practicum.filmorate.metrics.MetricsRegistry;
+
+/**
+ * Замер времени методов включается свойством {@code filmorate.metrics.enabled}. Без него прокси
+ * не создаются вовсе, и горячий путь ничего не замеряет.
+ */
+@Configuration
+@ConditionalOnProperty(name = "filmorate.metrics.enabled", havingValue = "true")
+public class MetricsConfig {
+
+    @Bean
+    public static MethodTimingPostProcessor methodTimingPostProcessor(ObjectProvider<MetricsRegistry> registry) {
+        return new MethodTimingPostProcessor(registry);
+    }
+}
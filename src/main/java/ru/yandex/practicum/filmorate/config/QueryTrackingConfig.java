@@ -0,0 +1,39 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import ru.yandex.practicum.filmorate.metrics.InstrumentationPostProcessor;
+import ru.yandex.practicum.filmorate.metrics.MetricsRegistry;
+import ru.yandex.practicum.filmorate.metrics.RequestMetricsInterceptor;
+import ru.yandex.practicum.filmorate.metrics.SqlBudget;
+
+/**
+ * Подсчёт SQL-запросов по HTTP-запросам нужен и метрикам, и бюджету запросов, поэтому
+ * включается любым из них. Иначе обёртки источника данных, пулов и перехватчик не создаются.
+ */
+@Configuration
+@ConditionalOnExpression("${filmorate.metrics.enabled:false} or '${filmorate.sql-budget.mode:off}' != 'off'")
+public class QueryTrackingConfig implements WebMvcConfigurer {
+    private final MetricsRegistry metricsRegistry;
+    private final SqlBudget sqlBudget;
+
+    public QueryTrackingConfig(MetricsRegistry metricsRegistry, SqlBudget sqlBudget) {
+        this.metricsRegistry = metricsRegistry;
+        this.sqlBudget = sqlBudget;
+    }
+
+    @Bean
+    public static InstrumentationPostProcessor instrumentationPostProcessor(ObjectProvider<MetricsRegistry> registry) {
+        return new InstrumentationPostProcessor(registry);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new RequestMetricsInterceptor(metricsRegistry, sqlBudget))
+                .excludePathPatterns("/metrics");
+    }
+}
@@ -0,0 +1,27 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import ru.yandex.practicum.filmorate.cache.BoundedCache;
+import ru.yandex.practicum.filmorate.cache.CacheStats;
+
+import java.util.List;
+
+@Slf4j
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/cache")
+public class CacheController {
+    private final List<BoundedCache<?, ?>> caches;
+
+    @GetMapping("/stats")
+    public List<CacheStats> getCacheStats() {
+        log.info("GET /cache/stats - получение статистики кэшей");
+        return caches.stream()
+                .map(BoundedCache::stats)
+                .toList();
+    }
+}
@@ -0,0 +1,45 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.transfer.CatalogEntity;
+import ru.yandex.practicum.filmorate.transfer.CatalogExporter;
+import ru.yandex.practicum.filmorate.transfer.ImportFormat;
+
+@Slf4j
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/export")
+public class ExportController {
+    private static final MediaType APPLICATION_GZIP = MediaType.parseMediaType("application/gzip");
+
+    private final CatalogExporter catalogExporter;
+
+    @GetMapping("/{dataset}")
+    public ResponseEntity<StreamingResponseBody> export(
+            @PathVariable String dataset,
+            @RequestParam(defaultValue = "true") boolean gzip) {
+        CatalogEntity entity = CatalogEntity.fromKey(dataset);
+        log.info("GET /export/{}?gzip={} - потоковая выгрузка", dataset, gzip);
+
+        String fileName = entity.getKey() + ".ndjson" + (gzip ? ImportFormat.GZIP_SUFFIX : "");
+        StreamingResponseBody body = gzip
+                ? out -> catalogExporter.exportCompressed(entity, out)
+                : out -> catalogExporter.export(entity, out);
+        return ResponseEntity.ok()
+                .contentType(gzip ? APPLICATION_GZIP : MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(fileName).build().toString())
+                .body(body);
+    }
+}
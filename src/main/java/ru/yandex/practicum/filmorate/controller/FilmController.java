@@ -1,11 +1,19 @@
 package ru.yandex.practicum.filmorate.controller;
 
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Positive;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeRequest;
+import ru.yandex.practicum.filmorate.model.LikeResult;
+import ru.yandex.practicum.filmorate.model.Suggestion;
 import ru.yandex.practicum.filmorate.service.FilmService;
 
 import java.util.List;
@@ -16,13 +24,32 @@ import java.util.List;
 @RequiredArgsConstructor
 @RequestMapping("/films")
 public class FilmController {
+    private static final int DEFAULT_PAGE_SIZE = 100;
 
     private final FilmService filmService;
+    private final NdjsonWriter ndjsonWriter;
 
     @GetMapping
-    public List<Film> getAllFilms() {
-        log.info("GET /films - получение всех фильмов");
-        return filmService.getAllFilms();
+    public List<Film> getAllFilms(
+            @RequestParam(name = "after_id", required = false) Long afterId,
+            @RequestParam(required = false) @Positive @Max(1000) Integer limit) {
+        if (afterId == null && limit == null) {
+            log.info("GET /films - получение всех фильмов");
+            return filmService.getAllFilms();
+        }
+
+        int pageSize = limit != null ? limit : DEFAULT_PAGE_SIZE;
+        log.info("GET /films?after_id={}&limit={} - получение страницы фильмов", afterId, pageSize);
+        return filmService.getFilms(afterId, pageSize);
+    }
+
+    @GetMapping(params = "format=ndjson")
+    public ResponseEntity<StreamingResponseBody> streamAllFilms() {
+        log.info("GET /films?format=ndjson - потоковая выгрузка фильмов");
+        StreamingResponseBody body = out -> filmService.streamFilms(film -> ndjsonWriter.write(out, film));
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
     }
 
     @GetMapping("/{id}")
@@ -59,10 +86,35 @@ public class FilmController {
         filmService.removeLike(id, userId);
     }
 
+    @PostMapping("/likes:batch")
+    public List<LikeResult> addLikes(@RequestBody List<@Valid LikeRequest> likes) {
+        log.info("POST /films/likes:batch - пакетное добавление {} лайков", likes.size());
+        return filmService.addLikes(likes);
+    }
+
+    @GetMapping("/search")
+    public List<Film> searchFilms(
+            @RequestParam String query,
+            @RequestParam(defaultValue = "title,description") List<String> by,
+            @RequestParam(defaultValue = "50") @Positive @Max(1000) Integer limit) {
+        log.info("GET /films/search?query={}&by={}&limit={} - поиск фильмов", query, by, limit);
+        return filmService.searchFilms(query, by, limit);
+    }
+
+    @GetMapping("/autocomplete")
+    public List<Suggestion> suggestTitles(
+            @RequestParam String prefix,
+            @RequestParam(defaultValue = "10") @Positive @Max(50) Integer limit) {
+        log.debug("GET /films/autocomplete?prefix={}&limit={} - подсказки по названию", prefix, limit);
+        return filmService.suggestTitles(prefix, limit);
+    }
+
     @GetMapping("/popular")
     public List<Film> getPopularFilms(
-            @RequestParam(defaultValue = "10") Integer count) {
-        log.info("GET /films/popular?count={} - получение популярных фильмов", count);
-        return filmService.getPopularFilms(count);
+            @RequestParam(defaultValue = "10") Integer count,
+            @RequestParam(required = false) @Positive Long genreId,
+            @RequestParam(required = false) @Positive Integer year) {
+        log.info("GET /films/popular?count={}&genreId={}&year={} - получение популярных фильмов", count, genreId, year);
+        return filmService.getPopularFilms(count, genreId, year);
     }
 }
\ No newline at end of file
@@ -1,11 +1,19 @@
 package ru.yandex.practicum.filmorate.controller;
 
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Positive;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Suggestion;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
 import ru.yandex.practicum.filmorate.service.UserService;
 
 import java.util.List;
@@ -16,12 +24,41 @@ import java.util.List;
 @RequiredArgsConstructor
 @RequestMapping("/users")
 public class UserController {
+    private static final int DEFAULT_PAGE_SIZE = 100;
+
     private final UserService userService;
+    private final FilmService filmService;
+    private final NdjsonWriter ndjsonWriter;
 
     @GetMapping
-    public List<User> getAllUsers() {
-        log.info("GET /users - получение всех пользователей");
-        return userService.getAllUsers();
+    public List<User> getAllUsers(
+            @RequestParam(name = "after_id", required = false) Long afterId,
+            @RequestParam(required = false) @Positive @Max(1000) Integer limit) {
+        if (afterId == null && limit == null) {
+            log.info("GET /users - получение всех пользователей");
+            return userService.getAllUsers();
+        }
+
+        int pageSize = limit != null ? limit : DEFAULT_PAGE_SIZE;
+        log.info("GET /users?after_id={}&limit={} - получение страницы пользователей", afterId, pageSize);
+        return userService.getUsers(afterId, pageSize);
+    }
+
+    @GetMapping(params = "format=ndjson")
+    public ResponseEntity<StreamingResponseBody> streamAllUsers() {
+        log.info("GET /users?format=ndjson - потоковая выгрузка пользователей");
+        StreamingResponseBody body = out -> userService.streamUsers(user -> ndjsonWriter.write(out, user));
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    @GetMapping("/autocomplete")
+    public List<Suggestion> suggestLogins(
+            @RequestParam String prefix,
+            @RequestParam(defaultValue = "10") @Positive @Max(50) Integer limit) {
+        log.debug("GET /users/autocomplete?prefix={}&limit={} - подсказки по логину", prefix, limit);
+        return userService.suggestLogins(prefix, limit);
     }
 
     @GetMapping("/{id}")
@@ -64,6 +101,28 @@ public class UserController {
         return userService.getFriends(id);
     }
 
+    @GetMapping("/{id}/friends/count")
+    public int getFriendCount(@PathVariable Long id) {
+        log.info("GET /users/{}/friends/count - получение количества друзей", id);
+        return userService.getFriendCount(id);
+    }
+
+    @GetMapping("/{id}/friends/suggestions")
+    public List<User> getFriendSuggestions(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "10") @Positive @Max(100) Integer limit) {
+        log.info("GET /users/{}/friends/suggestions?limit={} - получение рекомендаций друзей", id, limit);
+        return userService.getFriendSuggestions(id, limit);
+    }
+
+    @GetMapping("/{id}/recommendations")
+    public List<Film> getRecommendations(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "10") @Positive @Max(100) Integer limit) {
+        log.info("GET /users/{}/recommendations?limit={} - получение рекомендаций фильмов", id, limit);
+        return filmService.getRecommendations(id, limit);
+    }
+
     @GetMapping("/{id}/friends/common/{otherId}")
     public List<User> getCommonFriends(
             @PathVariable Long id,
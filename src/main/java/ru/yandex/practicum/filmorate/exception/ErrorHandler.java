@@ -50,6 +50,17 @@ public class ErrorHandler {
         return new ErrorResponse(errorMessage);
     }
 
+    /**
+     * Бюджет превышает сам сервер (например, N+1 в новом коде), а не клиент, поэтому ответ — 500,
+     * но с понятным сообщением вместо общего.
+     */
+    @ExceptionHandler
+    @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
+    public ErrorResponse handleSqlBudgetExceededException(final SqlBudgetExceededException e) {
+        log.error("Превышен бюджет SQL-запросов: {}", e.getMessage(), e);
+        return new ErrorResponse(e.getMessage());
+    }
+
     @ExceptionHandler
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
     public ErrorResponse handleException(final Exception e) {
@@ -0,0 +1,7 @@
+package ru.yandex.practicum.filmorate.exception;
+
+public class SqlBudgetExceededException extends RuntimeException {
+    public SqlBudgetExceededException(String message) {
+        super(message);
+    }
+}
@@ -1,13 +1,20 @@
 package ru.yandex.practicum.filmorate.impl;
 
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeRequest;
+import ru.yandex.practicum.filmorate.model.SearchField;
+import ru.yandex.practicum.filmorate.model.Suggestion;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 public interface FilmStorage {
     List<Film> getAllFilms();
 
+    List<Film> getFilms(Long afterId, int limit);
+
     Film createFilm(Film film);
 
     Film updateFilm(Film film);
@@ -18,9 +25,19 @@ public interface FilmStorage {
 
     void removeLike(Long filmId, Long userId);
 
-    List<Film> getPopularFilms(int count);
+    List<Boolean> addLikes(List<LikeRequest> likes);
+
+    List<Film> getPopularFilms(int count, Long genreId, Integer year);
+
+    List<Film> getRecommendedFilms(Long userId, int limit);
+
+    List<Film> searchFilms(String query, Set<SearchField> fields, int limit);
+
+    List<Suggestion> suggestTitles(String prefix, int limit);
 
     boolean existsById(Long id);
 
+    Set<Long> findExistingIds(Collection<Long> ids);
+
     void deleteFilm(Long id);
 }
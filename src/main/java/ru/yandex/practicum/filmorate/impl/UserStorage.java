@@ -1,19 +1,27 @@
 package ru.yandex.practicum.filmorate.impl;
 
+import ru.yandex.practicum.filmorate.model.Suggestion;
 import ru.yandex.practicum.filmorate.model.User;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 public interface UserStorage {
     List<User> getAllUsers();
 
+    List<User> getUsers(Long afterId, int limit);
+
     User createUser(User user);
 
     User updateUser(User user);
 
     Optional<User> getUserById(Long id);
 
+    List<User> getUsersByIds(List<Long> ids);
+
     void addFriend(Long userId, Long friendId);
 
     void removeFriend(Long userId, Long friendId);
@@ -22,7 +30,19 @@ public interface UserStorage {
 
     List<User> getCommonFriends(Long userId, Long otherId);
 
+    Set<Long> getFriendIds(Long userId);
+
+    Map<Long, Set<Long>> getFriendIds(Collection<Long> userIds);
+
+    int getFriendCount(Long userId);
+
+    List<Long> getFriendSuggestionIds(Long userId, int limit);
+
+    List<Suggestion> suggestLogins(String prefix, int limit);
+
     boolean existsById(Long id);
 
+    Set<Long> findExistingIds(Collection<Long> ids);
+
     void deleteUser(Long id);
 }
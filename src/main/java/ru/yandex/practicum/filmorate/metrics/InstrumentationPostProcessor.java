@@ -0,0 +1,31 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+
+import javax.sql.DataSource;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Подключает учёт SQL-запросов: оборачивает источник данных в {@link MeteredDataSource},
+ * а пулы потоков — в {@link QueryStatsPropagatingExecutor}, чтобы запросы из фоновых задач
+ * засчитывались HTTP-запросу, который их запустил.
+ */
+public class InstrumentationPostProcessor implements BeanPostProcessor {
+    private final ObjectProvider<MetricsRegistry> registry;
+
+    public InstrumentationPostProcessor(ObjectProvider<MetricsRegistry> registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource dataSource && !(bean instanceof MeteredDataSource)) {
+            return new MeteredDataSource(dataSource, registry.getObject());
+        }
+        if (bean instanceof ExecutorService executor && !(bean instanceof QueryStatsPropagatingExecutor)) {
+            return new QueryStatsPropagatingExecutor(executor);
+        }
+        return bean;
+    }
+}
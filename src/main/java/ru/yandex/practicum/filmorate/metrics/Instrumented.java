@@ -0,0 +1,15 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Помечает компонент, время выполнения публичных методов которого записывается в метрики,
+ * если они включены свойством {@code filmorate.metrics.enabled}.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Instrumented {
+}
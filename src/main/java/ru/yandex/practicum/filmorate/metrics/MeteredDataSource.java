@@ -0,0 +1,150 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Источник данных, считающий выполненные запросы и прочитанные строки: общие итоги попадают
+ * в {@link MetricsRegistry}, итоги HTTP-запроса — в {@link QueryStats} текущего потока.
+ * Соединения, запросы и курсоры оборачиваются динамическими прокси, поэтому обёртка подключается
+ * только при включённых метриках или бюджете запросов.
+ */
+public class MeteredDataSource extends DelegatingDataSource {
+    private final MetricsRegistry registry;
+
+    public MeteredDataSource(DataSource target, MetricsRegistry registry) {
+        super(target);
+        this.registry = registry;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Connection connection = super.getConnection();
+        return wrap(Connection.class, connection, new ConnectionHandler(connection));
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        Connection connection = super.getConnection(username, password);
+        return wrap(Connection.class, connection, new ConnectionHandler(connection));
+    }
+
+    private void statementExecuted(String sql) {
+        QueryStats stats = QueryStats.current();
+        if (stats != null) {
+            stats.statementExecuted(sql);
+        }
+        registry.statementExecuted();
+    }
+
+    private void rowRead() {
+        registry.rowRead();
+        QueryStats stats = QueryStats.current();
+        if (stats != null) {
+            stats.rowRead();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T wrap(Class<T> type, T target, Handler handler) {
+        return (T) Proxy.newProxyInstance(MeteredDataSource.class.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    private abstract static class Handler implements InvocationHandler {
+        private final Object target;
+
+        Handler(Object target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            before(method, args);
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+            return intercept(method, args, result);
+        }
+
+        void before(Method method, Object[] args) {
+        }
+
+        abstract Object intercept(Method method, Object[] args, Object result);
+    }
+
+    private class ConnectionHandler extends Handler {
+        ConnectionHandler(Connection connection) {
+            super(connection);
+        }
+
+        @Override
+        Object intercept(Method method, Object[] args, Object result) {
+            String preparedSql = args != null && args.length > 0 && args[0] instanceof String sql ? sql : null;
+            if (result instanceof CallableStatement statement) {
+                return wrap(CallableStatement.class, statement, new StatementHandler(statement, preparedSql));
+            }
+            if (result instanceof PreparedStatement statement) {
+                return wrap(PreparedStatement.class, statement, new StatementHandler(statement, preparedSql));
+            }
+            if (result instanceof Statement statement) {
+                return wrap(Statement.class, statement, new StatementHandler(statement, null));
+            }
+            return result;
+        }
+    }
+
+    private class StatementHandler extends Handler {
+        private final String preparedSql;
+
+        StatementHandler(Statement statement, String preparedSql) {
+            super(statement);
+            this.preparedSql = preparedSql;
+        }
+
+        /**
+         * Запрос засчитывается до выполнения, чтобы превышение бюджета отклоняло его, а не следующий.
+         */
+        @Override
+        void before(Method method, Object[] args) {
+            if (method.getName().startsWith("execute")) {
+                statementExecuted(args != null && args.length > 0 && args[0] instanceof String sql ? sql : preparedSql);
+            }
+        }
+
+        @Override
+        Object intercept(Method method, Object[] args, Object result) {
+            if (result instanceof ResultSet resultSet && !method.getName().equals("getGeneratedKeys")) {
+                return wrap(ResultSet.class, resultSet, new ResultSetHandler(resultSet));
+            }
+            return result;
+        }
+    }
+
+    private class ResultSetHandler extends Handler {
+        ResultSetHandler(ResultSet resultSet) {
+            super(resultSet);
+        }
+
+        @Override
+        Object intercept(Method method, Object[] args, Object result) {
+            if (Boolean.TRUE.equals(result) && method.getName().equals("next")) {
+                rowRead();
+            }
+            return result;
+        }
+    }
+}
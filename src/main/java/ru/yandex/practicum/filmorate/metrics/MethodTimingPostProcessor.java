@@ -0,0 +1,58 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.aop.framework.AbstractAdvisingBeanPostProcessor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.StaticMethodMatcherPointcut;
+import org.springframework.aop.support.annotation.AnnotationClassFilter;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Оборачивает компоненты с {@link Instrumented} в прокси, замеряющий время публичных методов.
+ * Если компонент уже проксирован (например, ради транзакций), замер добавляется в существующий прокси.
+ */
+public class MethodTimingPostProcessor extends AbstractAdvisingBeanPostProcessor {
+
+    public MethodTimingPostProcessor(ObjectProvider<MetricsRegistry> registry) {
+        StaticMethodMatcherPointcut pointcut = new StaticMethodMatcherPointcut() {
+            @Override
+            public boolean matches(Method method, Class<?> targetClass) {
+                return Modifier.isPublic(method.getModifiers()) && method.getDeclaringClass() != Object.class;
+            }
+        };
+        pointcut.setClassFilter(new AnnotationClassFilter(Instrumented.class, true));
+
+        this.advisor = new DefaultPointcutAdvisor(pointcut, new TimingInterceptor(registry));
+        setBeforeExistingAdvisors(true);
+        setProxyTargetClass(true);
+    }
+
+    private static class TimingInterceptor implements MethodInterceptor {
+        private final ObjectProvider<MetricsRegistry> registry;
+        private final Map<Method, Histogram> histograms = new ConcurrentHashMap<>();
+
+        TimingInterceptor(ObjectProvider<MetricsRegistry> registry) {
+            this.registry = registry;
+        }
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            long start = System.nanoTime();
+            try {
+                return invocation.proceed();
+            } finally {
+                long elapsed = System.nanoTime() - start;
+                histograms.computeIfAbsent(invocation.getMethod(), method -> registry.getObject().methodLatency(
+                        ClassUtils.getUserClass(invocation.getThis()).getSimpleName() + "." + method.getName()))
+                        .record(elapsed);
+            }
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.cache.BoundedCache;
+import ru.yandex.practicum.filmorate.cache.CacheStats;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Хранилище метрик приложения и их выгрузка в текстовом формате Prometheus.
+ * Гистограммы накапливаются с момента запуска; квантили считаются при выгрузке.
+ */
+@Component
+public class MetricsRegistry {
+    private static final double[] QUANTILES = {0.5, 0.99};
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final List<BoundedCache<?, ?>> caches;
+    private final Map<String, Histogram> methodLatency = new ConcurrentHashMap<>();
+    private final Map<String, RequestMetrics> requests = new ConcurrentHashMap<>();
+    private final LongAdder statements = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private final Map<String, LongAdder> sqlBudgetExceeded = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> repeatedStatements = new ConcurrentHashMap<>();
+
+    public MetricsRegistry(List<BoundedCache<?, ?>> caches) {
+        this.caches = caches;
+    }
+
+    public Histogram methodLatency(String method) {
+        return methodLatency.computeIfAbsent(method, name -> new Histogram());
+    }
+
+    public RequestMetrics requestMetrics(String handler) {
+        return requests.computeIfAbsent(handler, name -> new RequestMetrics());
+    }
+
+    public void statementExecuted() {
+        statements.increment();
+    }
+
+    public void rowRead() {
+        rows.increment();
+    }
+
+    public void sqlBudgetExceeded(String handler) {
+        sqlBudgetExceeded.computeIfAbsent(handler, name -> new LongAdder()).increment();
+    }
+
+    public void repeatedStatementsDetected(String handler) {
+        repeatedStatements.computeIfAbsent(handler, name -> new LongAdder()).increment();
+    }
+
+    public String scrape() {
+        StringBuilder out = new StringBuilder();
+
+        Map<String, Histogram> methods = new TreeMap<>(methodLatency);
+        summary(out, "filmorate_method_duration_seconds", "Время выполнения методов хранилищ и сервисов",
+                "method", methods, NANOS_PER_SECOND);
+
+        Map<String, RequestMetrics> handlers = new TreeMap<>(requests);
+        summary(out, "filmorate_http_request_duration_seconds", "Время обработки HTTP-запросов",
+                "handler", project(handlers, RequestMetrics::latency), NANOS_PER_SECOND);
+        summary(out, "filmorate_http_request_queries", "Число SQL-запросов на HTTP-запрос",
+                "handler", project(handlers, RequestMetrics::queries), 1);
+        summary(out, "filmorate_http_request_rows", "Число строк, прочитанных из БД за HTTP-запрос",
+                "handler", project(handlers, RequestMetrics::rows), 1);
+
+        family(out, "filmorate_jdbc_statements_total", "counter", "Всего выполнено SQL-запросов");
+        out.append("filmorate_jdbc_statements_total ").append(statements.sum()).append('\n');
+        family(out, "filmorate_jdbc_rows_total", "counter", "Всего прочитано строк из БД");
+        out.append("filmorate_jdbc_rows_total ").append(rows.sum()).append('\n');
+        counters(out, "filmorate_sql_budget_exceeded_total", "Запросы, превысившие бюджет SQL-запросов",
+                sqlBudgetExceeded);
+        counters(out, "filmorate_sql_repeated_statements_total", "Запросы с повторами одной формы SQL (N+1)",
+                repeatedStatements);
+
+        List<CacheStats> stats = caches.stream().map(BoundedCache::stats).toList();
+        cacheMetric(out, "filmorate_cache_hits_total", "counter", "Попадания в кэш", stats, CacheStats::hits);
+        cacheMetric(out, "filmorate_cache_misses_total", "counter", "Промахи кэша", stats, CacheStats::misses);
+        cacheMetric(out, "filmorate_cache_evictions_total", "counter", "Вытеснения из кэша", stats,
+                CacheStats::evictions);
+        cacheMetric(out, "filmorate_cache_size", "gauge", "Число записей в кэше", stats, CacheStats::size);
+        family(out, "filmorate_cache_hit_ratio", "gauge", "Доля попаданий в кэш");
+        for (CacheStats cache : stats) {
+            sample(out, "filmorate_cache_hit_ratio", "cache", cache.name(), null, cache.getHitRatio());
+        }
+        return out.toString();
+    }
+
+    private static void summary(StringBuilder out, String name, String help, String label,
+                                Map<String, Histogram> histograms, double scale) {
+        family(out, name, "summary", help);
+        histograms.forEach((value, histogram) -> {
+            for (double quantile : QUANTILES) {
+                sample(out, name, label, value, quantile, histogram.quantile(quantile) / scale);
+            }
+            sample(out, name + "_sum", label, value, null, histogram.sum() / scale);
+            sample(out, name + "_count", label, value, null, histogram.count());
+        });
+
+        family(out, name + "_max", "gauge", help + ", максимум");
+        histograms.forEach((value, histogram) ->
+                sample(out, name + "_max", label, value, null, histogram.max() / scale));
+    }
+
+    private static void counters(StringBuilder out, String name, String help, Map<String, LongAdder> counters) {
+        family(out, name, "counter", help);
+        new TreeMap<>(counters).forEach((handler, counter) ->
+                sample(out, name, "handler", handler, null, counter.sum()));
+    }
+
+    private static void cacheMetric(StringBuilder out, String name, String type, String help,
+                                    List<CacheStats> stats, ToLongFunction<CacheStats> metric) {
+        family(out, name, type, help);
+        for (CacheStats cache : stats) {
+            sample(out, name, "cache", cache.name(), null, metric.applyAsLong(cache));
+        }
+    }
+
+    private static void family(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, String label, String value,
+                               Double quantile, double sample) {
+        out.append(name).append('{').append(label).append("=\"").append(escape(value)).append('"');
+        if (quantile != null) {
+            out.append(",quantile=\"").append(quantile).append('"');
+        }
+        out.append("} ").append(format(sample)).append('\n');
+    }
+
+    private static String format(double value) {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static Map<String, Histogram> project(Map<String, RequestMetrics> handlers,
+                                                  Function<RequestMetrics, Histogram> part) {
+        Map<String, Histogram> result = new TreeMap<>();
+        handlers.forEach((handler, metrics) -> result.put(handler, part.apply(metrics)));
+        return result;
+    }
+
+    /**
+     * Метрики одного обработчика: время ответа, число SQL-запросов и прочитанных строк.
+     */
+    public record RequestMetrics(Histogram latency, Histogram queries, Histogram rows) {
+        RequestMetrics() {
+            this(new Histogram(), new Histogram(), new Histogram());
+        }
+
+        public void record(long elapsedNanos, QueryStats stats) {
+            latency.record(elapsedNanos);
+            queries.record(stats.getStatements());
+            rows.record(stats.getRows());
+        }
+    }
+}
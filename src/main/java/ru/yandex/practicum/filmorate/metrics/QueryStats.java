@@ -0,0 +1,131 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import ru.yandex.practicum.filmorate.exception.SqlBudgetExceededException;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Счётчики SQL-запросов и прочитанных строк в рамках одного HTTP-запроса.
+ * Привязываются к потоку обработки запроса и переносятся в задачи пулов, запущенные из него,
+ * поэтому параллельные подзагрузки учитываются в том же запросе.
+ */
+public class QueryStats {
+    private static final ThreadLocal<QueryStats> CURRENT = new ThreadLocal<>();
+
+    private final long statementLimit;
+    private final LongAdder statements = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private final Map<String, LongAdder> statementsByShape = new ConcurrentHashMap<>();
+
+    public QueryStats() {
+        this(Long.MAX_VALUE);
+    }
+
+    /**
+     * Запрос сверх {@code statementLimit} будет отклонён до выполнения.
+     */
+    public QueryStats(long statementLimit) {
+        this.statementLimit = statementLimit;
+    }
+
+    public static QueryStats begin() {
+        QueryStats stats = new QueryStats();
+        stats.attach();
+        return stats;
+    }
+
+    public static QueryStats current() {
+        return CURRENT.get();
+    }
+
+    public static void end() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Выполняет действие с отдельными счётчиками и возвращает их. Удобно для проверок
+     * в тестах: сколько запросов сделал метод хранилища и не повторял ли он один и тот же.
+     */
+    public static QueryStats measure(Runnable action) {
+        QueryStats stats = new QueryStats();
+        stats.runWithin(action);
+        return stats;
+    }
+
+    /**
+     * Оборачивает задачу так, чтобы она выполнялась с контекстом текущего потока.
+     */
+    public static Runnable propagate(Runnable task) {
+        QueryStats stats = CURRENT.get();
+        if (stats == null) {
+            return task;
+        }
+        return () -> stats.runWithin(task);
+    }
+
+    /**
+     * Делает счётчики текущими для этого потока, например при повторной диспетчеризации асинхронного запроса.
+     */
+    public void attach() {
+        CURRENT.set(this);
+    }
+
+    /**
+     * Выполняет действие с этими счётчиками и восстанавливает прежний контекст потока.
+     */
+    public void runWithin(Runnable action) {
+        QueryStats previous = CURRENT.get();
+        attach();
+        try {
+            action.run();
+        } finally {
+            if (previous != null) {
+                previous.attach();
+            } else {
+                end();
+            }
+        }
+    }
+
+    /**
+     * Засчитывает запрос перед выполнением. Отклонённый запрос тоже засчитывается,
+     * чтобы превышение было видно в итогах.
+     */
+    public void statementExecuted(String sql) {
+        statements.increment();
+        if (sql != null) {
+            statementsByShape.computeIfAbsent(StatementShapes.of(sql), shape -> new LongAdder()).increment();
+        }
+        if (statements.sum() > statementLimit) {
+            throw new SqlBudgetExceededException(
+                    "Превышен бюджет SQL-запросов на один HTTP-запрос: " + statementLimit);
+        }
+    }
+
+    public void rowRead() {
+        rows.increment();
+    }
+
+    public long getStatements() {
+        return statements.sum();
+    }
+
+    public long getRows() {
+        return rows.sum();
+    }
+
+    /**
+     * Формы запросов, выполненных не меньше {@code threshold} раз, от самых частых.
+     */
+    public Map<String, Long> getRepeatedStatements(int threshold) {
+        Map<String, Long> result = new LinkedHashMap<>();
+        statementsByShape.entrySet().stream()
+                .filter(entry -> entry.getValue().sum() >= threshold)
+                .sorted((left, right) -> Long.compare(right.getValue().sum(), left.getValue().sum()))
+                .forEach(entry -> result.put(entry.getKey(), entry.getValue().sum()));
+        return result;
+    }
+}
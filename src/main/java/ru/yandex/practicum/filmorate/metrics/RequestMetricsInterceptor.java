@@ -0,0 +1,66 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Замеряет время обработки запроса контроллером вместе с записью ответа
+ * и число SQL-запросов и строк, которые ему понадобились, и сверяет их с бюджетом.
+ */
+public class RequestMetricsInterceptor implements AsyncHandlerInterceptor {
+    private static final String START_ATTRIBUTE = RequestMetricsInterceptor.class.getName() + ".start";
+    private static final String STATS_ATTRIBUTE = RequestMetricsInterceptor.class.getName() + ".stats";
+
+    private final MetricsRegistry registry;
+    private final SqlBudget sqlBudget;
+    private final Map<Method, String> handlerNames = new ConcurrentHashMap<>();
+
+    public RequestMetricsInterceptor(MetricsRegistry registry, SqlBudget sqlBudget) {
+        this.registry = registry;
+        this.sqlBudget = sqlBudget;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!(handler instanceof HandlerMethod)) {
+            return true;
+        }
+        // При повторной диспетчеризации асинхронного ответа продолжаем замер, начатый в первом потоке
+        if (request.getAttribute(STATS_ATTRIBUTE) instanceof QueryStats stats) {
+            stats.attach();
+        } else {
+            request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+            request.setAttribute(STATS_ATTRIBUTE, sqlBudget.begin());
+        }
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+                                               Object handler) {
+        QueryStats.end();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response,
+                                Object handler, Exception ex) {
+        QueryStats.end();
+        if (!(handler instanceof HandlerMethod handlerMethod)
+                || !(request.getAttribute(START_ATTRIBUTE) instanceof Long start)
+                || !(request.getAttribute(STATS_ATTRIBUTE) instanceof QueryStats stats)) {
+            return;
+        }
+
+        long elapsed = System.nanoTime() - start;
+        String name = handlerNames.computeIfAbsent(handlerMethod.getMethod(), method ->
+                handlerMethod.getBeanType().getSimpleName() + "." + method.getName());
+        registry.requestMetrics(name).record(elapsed, stats);
+        sqlBudget.check(name, stats);
+    }
+}
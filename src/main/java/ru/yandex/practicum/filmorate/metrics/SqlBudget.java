@@ -0,0 +1,79 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Бюджет SQL-запросов на один HTTP-запрос. В режиме {@code log} превышение и повторы одной формы
+ * запроса (признак N+1) пишутся в журнал и в метрики, в режиме {@code reject} запрос сверх бюджета
+ * к тому же отклоняется исключением до выполнения, так что транзакция откатывается.
+ */
+@Slf4j
+@Component
+public class SqlBudget {
+    private final MetricsRegistry registry;
+    private final Mode mode;
+    private final int maxStatements;
+    private final int maxRepeats;
+
+    public SqlBudget(
+            MetricsRegistry registry,
+            @Value("${filmorate.sql-budget.mode:off}") String mode,
+            @Value("${filmorate.sql-budget.max-statements:50}") int maxStatements,
+            @Value("${filmorate.sql-budget.max-repeats:10}") int maxRepeats) {
+        this.registry = registry;
+        this.mode = Mode.valueOf(mode.trim().toUpperCase(Locale.ROOT));
+        this.maxStatements = maxStatements;
+        this.maxRepeats = maxRepeats;
+    }
+
+    public QueryStats begin() {
+        QueryStats stats = newStats();
+        stats.attach();
+        return stats;
+    }
+
+    /**
+     * Выполняет действие в рамках бюджета и возвращает его счётчики. В интеграционных тестах
+     * с режимом {@code reject} служит проверкой: лишний запрос завершит тест исключением.
+     */
+    public QueryStats track(String name, Runnable action) {
+        QueryStats stats = newStats();
+        try {
+            stats.runWithin(action);
+        } finally {
+            check(name, stats);
+        }
+        return stats;
+    }
+
+    public void check(String name, QueryStats stats) {
+        if (mode == Mode.OFF) {
+            return;
+        }
+
+        if (stats.getStatements() > maxStatements) {
+            registry.sqlBudgetExceeded(name);
+            log.warn("{}: выполнено {} SQL-запросов при бюджете {}", name, stats.getStatements(), maxStatements);
+        }
+
+        Map<String, Long> repeated = stats.getRepeatedStatements(maxRepeats);
+        if (!repeated.isEmpty()) {
+            registry.repeatedStatementsDetected(name);
+            repeated.forEach((shape, count) ->
+                    log.warn("{}: возможный N+1 — запрос выполнен {} раз: {}", name, count, shape));
+        }
+    }
+
+    private QueryStats newStats() {
+        return new QueryStats(mode == Mode.REJECT ? maxStatements : Long.MAX_VALUE);
+    }
+
+    public enum Mode {
+        OFF, LOG, REJECT
+    }
+}
@@ -0,0 +1,40 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Приводит SQL к «форме»: литералы заменяются на {@code ?}, списки параметров сворачиваются
+ * в один, пробелы схлопываются. Запросы, отличающиеся только значениями, получают одну форму —
+ * по ней и распознаются повторы в цикле (N+1).
+ */
+public final class StatementShapes {
+    private static final int MAX_CACHED = 1024;
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern PARAMETER_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)+\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private static final Map<String, String> CACHE = new ConcurrentHashMap<>();
+
+    private StatementShapes() {
+    }
+
+    public static String of(String sql) {
+        String shape = CACHE.get(sql);
+        if (shape != null) {
+            return shape;
+        }
+
+        shape = STRING_LITERAL.matcher(sql).replaceAll("?");
+        shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+        shape = PARAMETER_LIST.matcher(shape).replaceAll("(?)");
+        shape = WHITESPACE.matcher(shape).replaceAll(" ").trim();
+        // Запросы из кода повторяются, а собранные из литералов — нет: их не кэшируем сверх лимита
+        if (CACHE.size() < MAX_CACHED) {
+            CACHE.put(sql, shape);
+        }
+        return shape;
+    }
+}
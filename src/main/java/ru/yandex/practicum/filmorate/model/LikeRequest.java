@@ -0,0 +1,17 @@
+package ru.yandex.practicum.filmorate.model;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class LikeRequest {
+    @NotNull(message = "ID фильма должен быть указан")
+    private Long filmId;
+
+    @NotNull(message = "ID пользователя должен быть указан")
+    private Long userId;
+}
@@ -0,0 +1,30 @@
+package ru.yandex.practicum.filmorate.model;
+
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+
+/**
+ * Поля фильма, по которым работает полнотекстовый поиск.
+ */
+public enum SearchField {
+    TITLE("title"),
+    DESCRIPTION("description");
+
+    private final String key;
+
+    SearchField(String key) {
+        this.key = key;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public static SearchField fromKey(String key) {
+        for (SearchField field : values()) {
+            if (field.key.equalsIgnoreCase(key.trim())) {
+                return field;
+            }
+        }
+        throw new ValidationException("Неизвестное поле поиска: " + key);
+    }
+}
@@ -0,0 +1,113 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Array;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Supplier;
+
+@Slf4j
+@Component
+public class BatchLoader {
+    private final JdbcTemplate jdbcTemplate;
+    private final ExecutorService executor;
+    private final int chunkSize;
+    private final boolean parallel;
+
+    public BatchLoader(
+            JdbcTemplate jdbcTemplate,
+            @Qualifier("batchLoaderExecutor") ObjectProvider<ExecutorService> executor,
+            @Value("${filmorate.batch.chunk-size:500}") int chunkSize,
+            @Value("${filmorate.batch.parallel:false}") boolean parallel) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.executor = parallel ? executor.getIfAvailable() : null;
+        this.chunkSize = chunkSize;
+        this.parallel = this.executor != null;
+    }
+
+    /**
+     * Выполняет запрос с единственным параметром-массивом ({@code = ANY(?)}) для каждой порции ID
+     * и группирует пары (первая колонка, вторая колонка) результата.
+     * Внутри транзакции порции читаются последовательно: в других потоках запросы шли бы через
+     * другие соединения и не видели бы незакоммиченных изменений вызывающего.
+     */
+    public Map<Long, Set<Long>> loadGrouped(String sql, Collection<Long> ids, Supplier<Set<Long>> setFactory) {
+        if (ids.isEmpty()) {
+            return new HashMap<>();
+        }
+
+        List<List<Long>> chunks = split(ids);
+        log.debug("Пакетная загрузка {} ID порциями по {} ({} шт.)", ids.size(), chunkSize, chunks.size());
+
+        if (!parallel || chunks.size() == 1 || TransactionSynchronizationManager.isActualTransactionActive()) {
+            Map<Long, Set<Long>> result = new HashMap<>();
+            for (List<Long> chunk : chunks) {
+                result.putAll(loadChunk(sql, chunk, setFactory));
+            }
+            return result;
+        }
+
+        QueryCancellation cancellation = QueryCancellation.current();
+        List<CompletableFuture<Map<Long, Set<Long>>>> futures = new ArrayList<>(chunks.size());
+        for (List<Long> chunk : chunks) {
+            Supplier<Map<Long, Set<Long>>> task = () -> loadChunk(sql, chunk, setFactory);
+            futures.add(CompletableFuture.supplyAsync(cancellation != null ? cancellation.wrap(task) : task, executor));
+        }
+
+        Map<Long, Set<Long>> result = new HashMap<>();
+        try {
+            for (CompletableFuture<Map<Long, Set<Long>>> future : futures) {
+                result.putAll(future.join());
+            }
+        } catch (CompletionException e) {
+            futures.forEach(future -> future.cancel(true));
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+        return result;
+    }
+
+    private Map<Long, Set<Long>> loadChunk(String sql, List<Long> chunk, Supplier<Set<Long>> setFactory) {
+        QueryCancellation cancellation = QueryCancellation.current();
+        return jdbcTemplate.query(sql, ps -> {
+            if (cancellation != null) {
+                cancellation.register(ps);
+            }
+            Array array = ps.getConnection().createArrayOf("BIGINT", chunk.toArray());
+            ps.setArray(1, array);
+        }, rs -> {
+            Map<Long, Set<Long>> result = new HashMap<>();
+            while (rs.next()) {
+                result.computeIfAbsent(rs.getLong(1), k -> setFactory.get())
+                        .add(rs.getLong(2));
+            }
+            return result;
+        });
+    }
+
+    private List<List<Long>> split(Collection<Long> ids) {
+        List<Long> distinctIds = new ArrayList<>(new LinkedHashSet<>(ids));
+        List<List<Long>> chunks = new ArrayList<>((distinctIds.size() + chunkSize - 1) / chunkSize);
+        for (int from = 0; from < distinctIds.size(); from += chunkSize) {
+            chunks.add(distinctIds.subList(from, Math.min(from + chunkSize, distinctIds.size())));
+        }
+        return chunks;
+    }
+}
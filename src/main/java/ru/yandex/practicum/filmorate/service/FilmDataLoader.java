@@ -1,82 +1,110 @@
 package ru.yandex.practicum.filmorate.service;
 
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.yandex.practicum.filmorate.metrics.Instrumented;
+import ru.yandex.practicum.filmorate.storage.LikeWriteBehindBuffer;
 
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @Slf4j
+@Instrumented
 @Component
-@RequiredArgsConstructor
 public class FilmDataLoader {
-    private final JdbcTemplate jdbcTemplate;
+    private final BatchLoader batchLoader;
+    private final LikeWriteBehindBuffer likeBuffer;
+    private final ExecutorService executor;
+    private final boolean parallel;
+    private final long timeoutMs;
+
+    public FilmDataLoader(
+            BatchLoader batchLoader,
+            LikeWriteBehindBuffer likeBuffer,
+            @Qualifier("filmEnrichmentExecutor") ExecutorService executor,
+            @Value("${filmorate.enrichment.parallel:true}") boolean parallel,
+            @Value("${filmorate.enrichment.timeout-ms:5000}") long timeoutMs) {
+        this.batchLoader = batchLoader;
+        this.likeBuffer = likeBuffer;
+        this.executor = executor;
+        this.parallel = parallel;
+        this.timeoutMs = timeoutMs;
+    }
 
     public Map<Long, Set<Long>> loadGenresForFilms(List<Long> filmIds) {
-        if (filmIds.isEmpty()) {
-            return new HashMap<>();
-        }
+        String sql = "SELECT film_id, genre_id FROM film_genres " +
+                "WHERE film_id = ANY(?) " +
+                "ORDER BY film_id, genre_id";
 
-        String sql = String.format(
-                "SELECT film_id, genre_id FROM film_genres " +
-                        "WHERE film_id IN (%s) " +
-                        "ORDER BY film_id, genre_id",
-                filmIds.stream()
-                        .map(String::valueOf)
-                        .collect(Collectors.joining(","))
-        );
+        return batchLoader.loadGrouped(sql, filmIds, LinkedHashSet::new);
+    }
 
-        return jdbcTemplate.query(sql, rs -> {
-            Map<Long, Set<Long>> result = new HashMap<>();
-            while (rs.next()) {
-                Long filmId = rs.getLong("film_id");
-                Long genreId = rs.getLong("genre_id");
+    public Map<Long, Set<Long>> loadLikesForFilms(List<Long> filmIds) {
+        String sql = "SELECT film_id, user_id FROM likes WHERE film_id = ANY(?)";
 
-                result.computeIfAbsent(filmId, k -> new LinkedHashSet<>())
-                        .add(genreId);
-            }
-            return result;
+        return likeBuffer.readWithPending(() -> {
+            Map<Long, Set<Long>> likesByFilm = batchLoader.loadGrouped(sql, filmIds, HashSet::new);
+            likeBuffer.applyPending(likesByFilm, filmIds);
+            return likesByFilm;
         });
     }
 
-    public Map<Long, Set<Long>> loadLikesForFilms(List<Long> filmIds) {
-        if (filmIds.isEmpty()) {
-            return new HashMap<>();
+    /**
+     * Загружает жанры и лайки фильмов одновременно, так что время ответа определяется самым долгим
+     * запросом, а не их суммой. Если один из запросов упал или общий тайм-аут истёк, второй отменяется
+     * через {@link java.sql.Statement#cancel()} и освобождает соединение.
+     * Внутри транзакции запросы выполняются последовательно в текущем потоке: другие потоки
+     * не видят её незакоммиченных изменений и заняли бы лишние соединения пула.
+     */
+    public FilmRelations loadRelations(List<Long> filmIds) {
+        if (!parallel || TransactionSynchronizationManager.isActualTransactionActive()) {
+            return loadRelationsSequentially(filmIds);
         }
 
-        String sql = String.format(
-                "SELECT film_id, user_id FROM likes " +
-                        "WHERE film_id IN (%s)",
-                filmIds.stream()
-                        .map(String::valueOf)
-                        .collect(Collectors.joining(","))
-        );
+        QueryCancellation cancellation = new QueryCancellation(timeoutMs);
+        CompletableFuture<Map<Long, Set<Long>>> genres =
+                CompletableFuture.supplyAsync(cancellation.wrap(() -> loadGenresForFilms(filmIds)), executor);
+        CompletableFuture<Map<Long, Set<Long>>> likes =
+                CompletableFuture.supplyAsync(cancellation.wrap(() -> loadLikesForFilms(filmIds)), executor);
 
-        return jdbcTemplate.query(sql, rs -> {
-            Map<Long, Set<Long>> result = new HashMap<>();
-            while (rs.next()) {
-                Long filmId = rs.getLong("film_id");
-                Long userId = rs.getLong("user_id");
+        CompletableFuture<Void> firstFailure = new CompletableFuture<>();
+        genres.exceptionally(e -> failWith(firstFailure, e));
+        likes.exceptionally(e -> failWith(firstFailure, e));
 
-                result.computeIfAbsent(filmId, k -> new HashSet<>())
-                        .add(userId);
+        try {
+            CompletableFuture.anyOf(CompletableFuture.allOf(genres, likes), firstFailure)
+                    .orTimeout(timeoutMs, TimeUnit.MILLISECONDS)
+                    .join();
+            return new FilmRelations(genres.join(), likes.join());
+        } catch (CompletionException e) {
+            cancellation.cancel();
+            if (e.getCause() instanceof TimeoutException) {
+                log.warn("Загрузка жанров и лайков для {} фильмов не уложилась в {} мс", filmIds.size(), timeoutMs);
+                throw new IllegalStateException("Превышено время загрузки данных фильмов", e.getCause());
+            }
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
             }
+            throw e;
+        }
+    }
 
-            return result;
-        });
+    private FilmRelations loadRelationsSequentially(List<Long> filmIds) {
+        return new FilmRelations(loadGenresForFilms(filmIds), loadLikesForFilms(filmIds));
     }
 
-    public Set<Long> loadGenresForFilm(Long filmId) {
-        String sql = "SELECT genre_id FROM film_genres WHERE film_id = ? ORDER BY genre_id";
-        List<Long> genreIds = jdbcTemplate.queryForList(sql, Long.class, filmId);
-        return new LinkedHashSet<>(genreIds);
+    private static <T> T failWith(CompletableFuture<Void> failure, Throwable e) {
+        failure.completeExceptionally(e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
+        return null;
     }
 
-    public Set<Long> loadLikesForFilm(Long filmId) {
-        String sql = "SELECT user_id FROM likes WHERE film_id = ?";
-        List<Long> userIds = jdbcTemplate.queryForList(sql, Long.class, filmId);
-        return new HashSet<>(userIds);
+    public record FilmRelations(Map<Long, Set<Long>> genresByFilm, Map<Long, Set<Long>> likesByFilm) {
     }
-}
\ No newline at end of file
+}
@@ -7,19 +7,28 @@ import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.impl.FilmStorage;
+import ru.yandex.practicum.filmorate.metrics.Instrumented;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.LikeRequest;
+import ru.yandex.practicum.filmorate.model.LikeResult;
 import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.SearchField;
+import ru.yandex.practicum.filmorate.model.Suggestion;
 
 import java.time.LocalDate;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Slf4j
+@Instrumented
 @Service
 public class FilmService {
     private static final LocalDate MIN_RELEASE_DATE = LocalDate.of(1895, 12, 28);
     private static final Long DEFAULT_MPA_ID = 1L;
+    private static final int STREAM_CHUNK_SIZE = 500;
+    private static final int MAX_LIKES_BATCH_SIZE = 10_000;
 
     private final FilmStorage filmStorage;
     private final FilmDataLoader filmDataLoader;
@@ -46,12 +55,34 @@ public class FilmService {
         return enrichFilmsWithAdditionalData(films);
     }
 
+    public List<Film> getFilms(Long afterId, int limit) {
+        log.debug("Запрос на получение {} фильмов после ID {}", limit, afterId);
+        List<Film> films = filmStorage.getFilms(afterId, limit);
+        return enrichFilmsWithAdditionalData(films);
+    }
+
+    /**
+     * Выгружает фильмы страницами по ключу. Курсор не держится открытым, пока догружаются жанры
+     * и лайки: иначе каждая выгрузка занимала бы соединение и ждала второе, и одновременные
+     * выгрузки исчерпали бы пул.
+     */
+    public void streamFilms(Consumer<Film> consumer) {
+        log.debug("Потоковая выгрузка всех фильмов");
+        Long afterId = null;
+        List<Film> page;
+        do {
+            page = enrichFilmsWithAdditionalData(filmStorage.getFilms(afterId, STREAM_CHUNK_SIZE));
+            page.forEach(consumer);
+            if (!page.isEmpty()) {
+                afterId = page.get(page.size() - 1).getId();
+            }
+        } while (page.size() == STREAM_CHUNK_SIZE);
+    }
+
     public Film getFilmById(Long id) {
         log.debug("Запрос на получение фильма с ID: {}", id);
-        Film film = filmStorage.getFilmById(id)
+        return filmStorage.getFilmById(id)
                 .orElseThrow(() -> new NotFoundException("Фильм с ID " + id + " не найден"));
-
-        return enrichFilmWithAdditionalData(film);
     }
 
     @Transactional
@@ -64,7 +95,7 @@ public class FilmService {
         Film createdFilm = filmStorage.createFilm(film);
         log.info("Фильм создан с ID: {}", createdFilm.getId());
 
-        return getFilmById(createdFilm.getId());
+        return createdFilm;
     }
 
     @Transactional
@@ -87,7 +118,7 @@ public class FilmService {
         Film updatedFilm = filmStorage.updateFilm(film);
         log.info("Фильм с ID {} успешно обновлен", film.getId());
 
-        return getFilmById(updatedFilm.getId());
+        return updatedFilm;
     }
 
     public void addLike(Long filmId, Long userId) {
@@ -98,7 +129,7 @@ public class FilmService {
             throw new NotFoundException("Фильм с ID " + filmId + " не найден");
         }
 
-        userService.getUserById(userId);
+        userService.validateUserExists(userId);
 
         filmStorage.addLike(filmId, userId);
         log.info("Лайк успешно добавлен");
@@ -112,20 +143,102 @@ public class FilmService {
             throw new NotFoundException("Фильм с ID " + filmId + " не найден");
         }
 
-        userService.getUserById(userId);
+        userService.validateUserExists(userId);
 
         filmStorage.removeLike(filmId, userId);
         log.info("Лайк успешно удален");
     }
 
-    public List<Film> getPopularFilms(Integer count) {
+    public List<LikeResult> addLikes(List<LikeRequest> likes) {
+        log.info("Пакетное добавление {} лайков", likes.size());
+
+        if (likes.size() > MAX_LIKES_BATCH_SIZE) {
+            throw new ValidationException("За один запрос можно передать не более " + MAX_LIKES_BATCH_SIZE + " лайков");
+        }
+
+        for (LikeRequest like : likes) {
+            if (like == null || like.getFilmId() == null || like.getUserId() == null) {
+                throw new ValidationException("ID фильма и пользователя должны быть указаны");
+            }
+        }
+
+        Set<Long> existingFilmIds = filmStorage.findExistingIds(likes.stream()
+                .map(LikeRequest::getFilmId)
+                .collect(Collectors.toSet()));
+        Set<Long> existingUserIds = userService.findExistingIds(likes.stream()
+                .map(LikeRequest::getUserId)
+                .collect(Collectors.toSet()));
+
+        List<LikeResult> results = new ArrayList<>(likes.size());
+        List<LikeRequest> toInsert = new ArrayList<>();
+        List<LikeResult> pendingResults = new ArrayList<>();
+        Set<LikeRequest> seen = new HashSet<>();
+
+        for (LikeRequest like : likes) {
+            LikeResult result = new LikeResult(like.getFilmId(), like.getUserId(), null);
+            if (!existingFilmIds.contains(like.getFilmId())) {
+                result.setStatus(LikeResult.Status.FILM_NOT_FOUND);
+            } else if (!existingUserIds.contains(like.getUserId())) {
+                result.setStatus(LikeResult.Status.USER_NOT_FOUND);
+            } else if (!seen.add(like)) {
+                result.setStatus(LikeResult.Status.DUPLICATE);
+            } else {
+                toInsert.add(like);
+                pendingResults.add(result);
+            }
+            results.add(result);
+        }
+
+        if (!toInsert.isEmpty()) {
+            List<Boolean> inserted = filmStorage.addLikes(toInsert);
+            for (int i = 0; i < pendingResults.size(); i++) {
+                pendingResults.get(i).setStatus(inserted.get(i)
+                        ? LikeResult.Status.CREATED
+                        : LikeResult.Status.DUPLICATE);
+            }
+        }
+
+        return results;
+    }
+
+    public List<Film> getPopularFilms(Integer count, Long genreId, Integer year) {
         int limit = (count != null && count > 0) ? count : 10;
-        log.info("Запрос на получение {} популярных фильмов", limit);
+        log.info("Запрос на получение {} популярных фильмов (жанр: {}, год: {})", limit, genreId, year);
 
-        List<Film> popularFilms = filmStorage.getPopularFilms(limit);
+        List<Film> popularFilms = filmStorage.getPopularFilms(limit, genreId, year);
         return enrichFilmsWithAdditionalData(popularFilms);
     }
 
+    public List<Film> getRecommendations(Long userId, int limit) {
+        userService.validateUserExists(userId);
+        log.info("Запрос на получение {} рекомендаций фильмов для пользователя {}", limit, userId);
+
+        List<Film> recommendations = filmStorage.getRecommendedFilms(userId, limit);
+        return enrichFilmsWithAdditionalData(recommendations);
+    }
+
+    public List<Film> searchFilms(String query, List<String> by, int limit) {
+        if (query == null || query.isBlank()) {
+            throw new ValidationException("Поисковый запрос не может быть пустым");
+        }
+
+        Set<SearchField> fields = EnumSet.noneOf(SearchField.class);
+        for (String key : by) {
+            fields.add(SearchField.fromKey(key));
+        }
+        log.info("Поиск фильмов по запросу '{}' в полях {}", query, fields);
+
+        List<Film> films = filmStorage.searchFilms(query, fields, limit);
+        return enrichFilmsWithAdditionalData(films);
+    }
+
+    public List<Suggestion> suggestTitles(String prefix, int limit) {
+        if (prefix == null || prefix.isBlank()) {
+            return new ArrayList<>();
+        }
+        return filmStorage.suggestTitles(prefix.strip(), limit);
+    }
+
     private List<Film> enrichFilmsWithAdditionalData(List<Film> films) {
         if (films.isEmpty()) {
             return films;
@@ -135,10 +248,11 @@ public class FilmService {
                 .map(Film::getId)
                 .collect(Collectors.toList());
 
-        Map<Long, Set<Long>> filmGenreIdsMap = filmDataLoader.loadGenresForFilms(filmIds);
+        FilmDataLoader.FilmRelations relations = filmDataLoader.loadRelations(filmIds);
+        Map<Long, Set<Long>> filmGenreIdsMap = relations.genresByFilm();
         Map<Long, Genre> allGenresMap = genreService.getAllGenresMap();
 
-        Map<Long, Set<Long>> filmLikesMap = filmDataLoader.loadLikesForFilms(filmIds);
+        Map<Long, Set<Long>> filmLikesMap = relations.likesByFilm();
 
         Map<Long, Mpa> allMpaMap = mpaService.getAllMpaMap();
 
@@ -166,26 +280,7 @@ public class FilmService {
         return films;
     }
 
-    private Film enrichFilmWithAdditionalData(Film film) {
-        Set<Long> genreIds = filmDataLoader.loadGenresForFilm(film.getId());
-        Map<Long, Genre> allGenresMap = genreService.getAllGenresMap();
-
-        Set<Genre> genres = genreIds.stream()
-                .map(allGenresMap::get)
-                .filter(Objects::nonNull)
-                .collect(Collectors.toCollection(LinkedHashSet::new));
-        film.setGenres(genres);
-
-        film.setLikes(filmDataLoader.loadLikesForFilm(film.getId()));
-
-        if (film.getMpa() != null && film.getMpa().getId() != null) {
-            film.setMpa(mpaService.getMpaById(film.getMpa().getId()));
-        }
-
-        return film;
-    }
-
-    private void validateAndEnrichFilmData(Film film) {
+    public void validateAndEnrichFilmData(Film film) {
         if (film.getMpa() == null || film.getMpa().getId() == null) {
             Mpa defaultMpa = mpaService.getMpaById(DEFAULT_MPA_ID);
             film.setMpa(defaultMpa);
@@ -198,7 +293,7 @@ public class FilmService {
             Set<Long> genreIds = film.getGenres().stream()
                     .map(Genre::getId)
                     .filter(Objects::nonNull)
-                    .collect(Collectors.toSet());
+                    .collect(Collectors.toCollection(TreeSet::new));
 
             Map<Long, Genre> allGenresMap = genreService.getAllGenresMap();
             Set<Genre> validatedGenres = new LinkedHashSet<>();
@@ -221,7 +316,7 @@ public class FilmService {
         }
     }
 
-    private void validateFilm(Film film) {
+    public void validateFilm(Film film) {
         if (film.getName() == null || film.getName().isBlank()) {
             throw new ValidationException("Название фильма не может быть пустым");
         }
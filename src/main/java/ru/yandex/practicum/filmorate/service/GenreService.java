@@ -7,7 +7,6 @@ import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.storage.dao.GenreDao;
 
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -18,44 +17,30 @@ import java.util.Map;
 public class GenreService {
 
     private final GenreDao genreDao;
-
-    private List<Genre> allGenresCache;
-    private Map<Long, Genre> genresByIdCache;
+    private final ReferenceDataRegistry referenceDataRegistry;
 
     public List<Genre> getAllGenres() {
-        if (allGenresCache == null) {
-            allGenresCache = genreDao.getAllGenres();
-            genresByIdCache = new HashMap<>();
-            for (Genre genre : allGenresCache) {
-                genresByIdCache.put(genre.getId(), genre);
-            }
-        }
-        return allGenresCache;
+        return referenceDataRegistry.getAllGenres();
     }
 
     public Genre getGenreById(Long id) {
-        if (genresByIdCache != null) {
-            Genre genre = genresByIdCache.get(id);
-            if (genre != null) {
-                return genre;
-            }
+        Genre genre = referenceDataRegistry.findGenre(id);
+        if (genre != null) {
+            return genre;
         }
 
-        Genre genre = genreDao.getGenreById(id)
+        genre = genreDao.getGenreById(id)
                 .orElseThrow(() -> {
                     log.error("Жанр с ID {} не найден", id);
                     return new NotFoundException("Жанр с ID " + id + " не найден");
                 });
 
-        if (genresByIdCache != null) {
-            genresByIdCache.put(genre.getId(), genre);
-        }
-
+        log.info("Жанр с ID {} отсутствовал в справочнике, справочник обновлен", id);
+        referenceDataRegistry.refresh();
         return genre;
     }
 
     public Map<Long, Genre> getAllGenresMap() {
-        getAllGenres();
-        return genresByIdCache;
+        return referenceDataRegistry.getGenresById();
     }
-}
\ No newline at end of file
+}
@@ -7,7 +7,6 @@ import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Mpa;
 import ru.yandex.practicum.filmorate.storage.dao.MpaDao;
 
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -16,45 +15,31 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class MpaService {
     private final MpaDao mpaDao;
-
-    private List<Mpa> allMpaCache;
-    private Map<Long, Mpa> mpaByIdCache;
+    private final ReferenceDataRegistry referenceDataRegistry;
 
     public List<Mpa> getAllMpa() {
-        if (allMpaCache == null) {
-            allMpaCache = mpaDao.getAllMpa();
-            mpaByIdCache = new HashMap<>();
-            for (Mpa mpa : allMpaCache) {
-                mpaByIdCache.put(mpa.getId(), mpa);
-            }
-        }
-        return allMpaCache;
+        return referenceDataRegistry.getAllMpa();
     }
 
     public Mpa getMpaById(Long id) {
-        if (mpaByIdCache != null) {
-            Mpa mpa = mpaByIdCache.get(id);
-            if (mpa != null) {
-                log.debug("Рейтинг MPA с ID {} найден в кэше", id);
-                return mpa;
-            }
+        Mpa mpa = referenceDataRegistry.findMpa(id);
+        if (mpa != null) {
+            log.debug("Рейтинг MPA с ID {} найден в справочнике", id);
+            return mpa;
         }
 
-        Mpa mpa = mpaDao.getMpaById(id)
+        mpa = mpaDao.getMpaById(id)
                 .orElseThrow(() -> {
                     log.error("Рейтинг MPA с ID {} не найден", id);
                     return new NotFoundException("Рейтинг MPA с ID " + id + " не найден");
                 });
 
-        if (mpaByIdCache != null) {
-            mpaByIdCache.put(mpa.getId(), mpa);
-        }
-
+        log.info("Рейтинг MPA с ID {} отсутствовал в справочнике, справочник обновлен", id);
+        referenceDataRegistry.refresh();
         return mpa;
     }
 
     public Map<Long, Mpa> getAllMpaMap() {
-        getAllMpa();
-        return mpaByIdCache;
+        return referenceDataRegistry.getMpaById();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,84 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Общий срок и отмена для запросов, запущенных в разных потоках одной операции.
+ * Запросы отменяются через {@link Statement#cancel()}, а не прерыванием потоков: прерывание
+ * во время работы встроенной H2 закрывает файл базы. Срок дополнительно передаётся каждому
+ * запросу как тайм-аут, поэтому запрос, начавшийся в момент отмены, тоже не переживёт операцию.
+ */
+@Slf4j
+public class QueryCancellation {
+    private static final ThreadLocal<QueryCancellation> CURRENT = new ThreadLocal<>();
+
+    private final long deadlineNanos;
+    private final Set<Statement> statements = ConcurrentHashMap.newKeySet();
+    private volatile boolean cancelled;
+
+    public QueryCancellation(long timeoutMs) {
+        this.deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+    }
+
+    public static QueryCancellation current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Оборачивает задачу так, чтобы запросы из неё подчинялись этому сроку и отмене.
+     */
+    public <T> Supplier<T> wrap(Supplier<T> task) {
+        return () -> {
+            QueryCancellation previous = CURRENT.get();
+            CURRENT.set(this);
+            try {
+                return task.get();
+            } finally {
+                if (previous != null) {
+                    CURRENT.set(previous);
+                } else {
+                    CURRENT.remove();
+                }
+            }
+        };
+    }
+
+    /**
+     * Регистрирует запрос перед выполнением. Если операция уже отменена или срок истёк,
+     * запрос не выполняется.
+     */
+    public void register(Statement statement) throws SQLException {
+        long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+        if (cancelled || remainingMs <= 0) {
+            throw new CancellationException("Загрузка отменена");
+        }
+        statement.setQueryTimeout((int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(remainingMs + 999)));
+        statements.add(statement);
+        // Отмена могла пройти между проверкой и регистрацией и не увидеть этот запрос
+        if (cancelled) {
+            cancel(statement);
+        }
+    }
+
+    public void cancel() {
+        cancelled = true;
+        statements.forEach(QueryCancellation::cancel);
+    }
+
+    private static void cancel(Statement statement) {
+        try {
+            statement.cancel();
+        } catch (SQLException e) {
+            // Запрос уже завершился и закрыт
+            log.debug("Не удалось отменить запрос: {}", e.getMessage());
+        }
+    }
+}
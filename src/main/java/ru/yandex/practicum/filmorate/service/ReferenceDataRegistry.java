@@ -0,0 +1,81 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.storage.dao.GenreDao;
+import ru.yandex.practicum.filmorate.storage.dao.MpaDao;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ReferenceDataRegistry {
+    private final GenreDao genreDao;
+    private final MpaDao mpaDao;
+
+    private volatile Snapshot snapshot = new Snapshot(List.of(), Map.of(), List.of(), Map.of());
+
+    @PostConstruct
+    public void load() {
+        refresh();
+    }
+
+    @Scheduled(
+            initialDelayString = "${filmorate.reference-data.refresh-interval-ms:3600000}",
+            fixedDelayString = "${filmorate.reference-data.refresh-interval-ms:3600000}")
+    public void refresh() {
+        List<Genre> genres = List.copyOf(genreDao.getAllGenres());
+        List<Mpa> mpa = List.copyOf(mpaDao.getAllMpa());
+
+        snapshot = new Snapshot(genres, index(genres, Genre::getId), mpa, index(mpa, Mpa::getId));
+        log.info("Справочники загружены: жанров {}, рейтингов MPA {}", genres.size(), mpa.size());
+    }
+
+    public List<Genre> getAllGenres() {
+        return snapshot.genres();
+    }
+
+    public Map<Long, Genre> getGenresById() {
+        return snapshot.genresById();
+    }
+
+    public Genre findGenre(Long id) {
+        return snapshot.genresById().get(id);
+    }
+
+    public List<Mpa> getAllMpa() {
+        return snapshot.mpa();
+    }
+
+    public Map<Long, Mpa> getMpaById() {
+        return snapshot.mpaById();
+    }
+
+    public Mpa findMpa(Long id) {
+        return snapshot.mpaById().get(id);
+    }
+
+    private static <T> Map<Long, T> index(List<T> values, Function<T, Long> idExtractor) {
+        Map<Long, T> result = new HashMap<>();
+        for (T value : values) {
+            result.put(idExtractor.apply(value), value);
+        }
+        return Map.copyOf(result);
+    }
+
+    private record Snapshot(
+            List<Genre> genres,
+            Map<Long, Genre> genresById,
+            List<Mpa> mpa,
+            Map<Long, Mpa> mpaById) {
+    }
+}
@@ -5,29 +5,39 @@ import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.cache.BoundedCache;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.impl.UserStorage;
+import ru.yandex.practicum.filmorate.metrics.Instrumented;
+import ru.yandex.practicum.filmorate.model.Suggestion;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Slf4j
+@Instrumented
 @Service
 public class UserService {
+    private static final int STREAM_CHUNK_SIZE = 500;
+
     private final UserStorage userStorage;
-    private final UserDataLoader userDataLoader;
+    private final BoundedCache<Long, User> userCache;
 
     public UserService(
             @Qualifier("userDbStorage") UserStorage userStorage,
-            UserDataLoader userDataLoader) {
+            @Qualifier("userCache") BoundedCache<Long, User> userCache) {
         this.userStorage = userStorage;
-        this.userDataLoader = userDataLoader;
+        this.userCache = userCache;
     }
 
     public List<User> getAllUsers() {
@@ -36,12 +46,48 @@ public class UserService {
         return enrichUsersWithFriends(users);
     }
 
+    public List<User> getUsers(Long afterId, int limit) {
+        log.debug("Запрос на получение {} пользователей после ID {}", limit, afterId);
+        List<User> users = userStorage.getUsers(afterId, limit);
+        return enrichUsersWithFriends(users);
+    }
+
+    /**
+     * Выгружает пользователей страницами по ключу, как {@link FilmService#streamFilms}: открытый
+     * курсор держал бы соединение, пока догружаются друзья.
+     */
+    public void streamUsers(Consumer<User> consumer) {
+        log.debug("Потоковая выгрузка всех пользователей");
+        Long afterId = null;
+        List<User> page;
+        do {
+            page = enrichUsersWithFriends(userStorage.getUsers(afterId, STREAM_CHUNK_SIZE));
+            page.forEach(consumer);
+            if (!page.isEmpty()) {
+                afterId = page.get(page.size() - 1).getId();
+            }
+        } while (page.size() == STREAM_CHUNK_SIZE);
+    }
+
     public User getUserById(Long id) {
         log.debug("Запрос на получение пользователя с ID: {}", id);
-        User user = userStorage.getUserById(id)
-                .orElseThrow(() -> new NotFoundException("Пользователь с ID " + id + " не найден"));
+        User profile = userCache.get(id, key -> userStorage.getUserById(key).orElse(null));
+        if (profile == null) {
+            throw new NotFoundException("Пользователь с ID " + id + " не найден");
+        }
+
+        return copyWithFriends(profile, userStorage.getFriendIds(id));
+    }
 
-        return enrichUserWithFriends(user);
+    public Set<Long> findExistingIds(Collection<Long> ids) {
+        return userStorage.findExistingIds(ids);
+    }
+
+    public void validateUserExists(Long id) {
+        if (!userExists(id)) {
+            log.error("Пользователь с ID {} не найден", id);
+            throw new NotFoundException("Пользователь с ID " + id + " не найден");
+        }
     }
 
     @Transactional
@@ -80,6 +126,7 @@ public class UserService {
         }
 
         User updatedUser = userStorage.updateUser(user);
+        userCache.invalidateAfterTransaction(user.getId());
         log.info("Пользователь с ID {} успешно обновлен", user.getId());
         return updatedUser;
     }
@@ -98,12 +145,9 @@ public class UserService {
     public void removeFriend(Long userId, Long friendId) {
         log.info("Пользователь {} удаляет из друзей пользователя {}", userId, friendId);
 
-        if (!userStorage.existsById(userId)) {
-            log.error("Пользователь с ID {} не найден", userId);
-            throw new NotFoundException("Пользователь с ID " + userId + " не найден");
-        }
+        validateUserExists(userId);
 
-        if (!userId.equals(friendId) && !userStorage.existsById(friendId)) {
+        if (!userId.equals(friendId) && !userExists(friendId)) {
             log.error("Пользователь с ID {} не найден", friendId);
             throw new NotFoundException("Пользователь с ID " + friendId + " не найден");
         }
@@ -120,13 +164,31 @@ public class UserService {
     public List<User> getFriends(Long userId) {
         log.debug("Запрос на получение списка друзей пользователя с ID: {}", userId);
 
-        if (!userStorage.existsById(userId)) {
-            log.error("Пользователь с ID {} не найден", userId);
-            throw new NotFoundException("Пользователь с ID " + userId + " не найден");
-        }
+        validateUserExists(userId);
+
+        List<Long> friendIds = new ArrayList<>(userStorage.getFriendIds(userId));
+        return enrichUsersWithFriends(getProfiles(friendIds));
+    }
+
+    public int getFriendCount(Long userId) {
+        validateUserExists(userId);
+        return userStorage.getFriendCount(userId);
+    }
+
+    public List<User> getFriendSuggestions(Long userId, int limit) {
+        log.debug("Запрос на получение {} рекомендаций друзей для пользователя {}", limit, userId);
+
+        validateUserExists(userId);
 
-        List<User> friends = userStorage.getFriends(userId);
-        return enrichUsersWithFriends(friends);
+        List<Long> suggestedIds = userStorage.getFriendSuggestionIds(userId, limit);
+        return enrichUsersWithFriends(getProfiles(suggestedIds));
+    }
+
+    public List<Suggestion> suggestLogins(String prefix, int limit) {
+        if (prefix == null || prefix.isBlank()) {
+            return new ArrayList<>();
+        }
+        return userStorage.suggestLogins(prefix.strip(), limit);
     }
 
     public List<User> getCommonFriends(Long userId, Long otherId) {
@@ -143,11 +205,9 @@ public class UserService {
             return users;
         }
 
-        List<Long> userIds = users.stream()
+        Map<Long, Set<Long>> userFriendsMap = userStorage.getFriendIds(users.stream()
                 .map(User::getId)
-                .collect(Collectors.toList());
-
-        Map<Long, Set<Long>> userFriendsMap = userDataLoader.loadFriendsForUsers(userIds);
+                .collect(Collectors.toList()));
 
         for (User user : users) {
             user.setFriends(userFriendsMap.getOrDefault(user.getId(), new HashSet<>()));
@@ -156,13 +216,36 @@ public class UserService {
         return users;
     }
 
-    private User enrichUserWithFriends(User user) {
-        Set<Long> friendIds = userDataLoader.loadFriendsForUser(user.getId());
-        user.setFriends(friendIds);
-        return user;
+    private List<User> getProfiles(List<Long> ids) {
+        Map<Long, User> profiles = userCache.getAll(ids, missingIds -> userStorage.getUsersByIds(missingIds).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity())));
+
+        List<User> users = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            User profile = profiles.get(id);
+            if (profile != null) {
+                users.add(copyWithFriends(profile, new HashSet<>()));
+            }
+        }
+        return users;
+    }
+
+    private User copyWithFriends(User profile, Set<Long> friendIds) {
+        return User.builder()
+                .id(profile.getId())
+                .email(profile.getEmail())
+                .login(profile.getLogin())
+                .name(profile.getName())
+                .birthday(profile.getBirthday())
+                .friends(friendIds)
+                .build();
+    }
+
+    private boolean userExists(Long id) {
+        return userCache.get(id) != null || userStorage.existsById(id);
     }
 
-    private void validateUser(User user) {
+    public void validateUser(User user) {
         if (user.getEmail() == null || user.getEmail().isBlank()) {
             log.warn("Попытка создать пользователя с пустым email");
             throw new ValidationException("Электронная почта не может быть пустой");
@@ -204,14 +287,7 @@ public class UserService {
     }
 
     private void validateBothUsersExist(Long userId, Long otherId) {
-        if (!userStorage.existsById(userId)) {
-            log.error("Пользователь с ID {} не найден", userId);
-            throw new NotFoundException("Пользователь с ID " + userId + " не найден");
-        }
-
-        if (!userStorage.existsById(otherId)) {
-            log.error("Пользователь с ID {} не найден", otherId);
-            throw new NotFoundException("Пользователь с ID " + otherId + " не найден");
-        }
+        validateUserExists(userId);
+        validateUserExists(otherId);
     }
 }
\ No newline at end of file
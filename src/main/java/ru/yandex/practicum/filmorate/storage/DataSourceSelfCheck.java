@@ -0,0 +1,97 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Проверка источника данных при запуске: пишет в журнал фактические настройки пула и H2
+ * и предупреждает, если H2 не применила заказанные в URL размеры кэшей — например, потому что
+ * файл базы уже был открыт другим процессом с другими параметрами.
+ */
+@Slf4j
+@Component
+public class DataSourceSelfCheck implements ApplicationRunner {
+    private static final String[] H2_SETTINGS = {
+            "QUERY_CACHE_SIZE", "info.CACHE_MAX_SIZE", "info.CACHE_SIZE", "info.CACHE_HIT_RATIO",
+            "info.PAGE_SIZE", "info.FILE_SIZE"
+    };
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+
+    public DataSourceSelfCheck(DataSource dataSource, JdbcTemplate jdbcTemplate) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        try {
+            long start = System.nanoTime();
+            jdbcTemplate.queryForObject("SELECT 1", Integer.class);
+            long roundTripMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+
+            if (!dataSource.isWrapperFor(HikariDataSource.class)) {
+                log.info("Источник данных {}, первый запрос {} мкс", dataSource.getClass().getSimpleName(),
+                        roundTripMicros);
+                return;
+            }
+
+            HikariDataSource hikari = dataSource.unwrap(HikariDataSource.class);
+            log.info("Пул соединений: максимум {}, минимум простаивающих {}, ожидание соединения {} мс, " +
+                            "ядер {}, первый запрос {} мкс",
+                    hikari.getMaximumPoolSize(), hikari.getMinimumIdle(), hikari.getConnectionTimeout(),
+                    Runtime.getRuntime().availableProcessors(), roundTripMicros);
+
+            if (hikari.getJdbcUrl() != null && hikari.getJdbcUrl().startsWith("jdbc:h2:")) {
+                checkH2(hikari.getJdbcUrl());
+            }
+        } catch (DataAccessException | SQLException e) {
+            log.warn("Не удалось проверить источник данных: {}", e.getMessage());
+        }
+    }
+
+    private void checkH2(String url) {
+        Map<String, String> settings = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT setting_name, setting_value FROM information_schema.settings " +
+                "WHERE setting_name = ANY(?)", rs -> {
+            settings.put(rs.getString(1), rs.getString(2));
+        }, (Object) H2_SETTINGS);
+        log.info("Настройки H2: {}", settings);
+
+        Long cacheSizeKb = urlSetting(url, "CACHE_SIZE");
+        if (cacheSizeKb != null) {
+            // CACHE_SIZE задаётся в КБ, а MVStore сообщает предел кэша в МБ
+            expect(settings, "info.CACHE_MAX_SIZE", Math.max(1, cacheSizeKb / 1024));
+        }
+        Long queryCacheSize = urlSetting(url, "QUERY_CACHE_SIZE");
+        if (queryCacheSize != null) {
+            expect(settings, "QUERY_CACHE_SIZE", queryCacheSize);
+        }
+    }
+
+    private static void expect(Map<String, String> settings, String name, long expected) {
+        String actual = settings.get(name);
+        if (actual != null && !actual.equals(Long.toString(expected))) {
+            log.warn("H2 не применила настройку {}: ожидалось {}, фактически {}", name, expected, actual);
+        }
+    }
+
+    private static Long urlSetting(String url, String name) {
+        Matcher matcher = Pattern.compile(";" + name + "=(\\d+)", Pattern.CASE_INSENSITIVE).matcher(url);
+        return matcher.find() ? Long.parseLong(matcher.group(1)) : null;
+    }
+}
@@ -1,8 +1,12 @@
 package ru.yandex.practicum.filmorate.storage;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.transaction.Transactional;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Primary;
 import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
@@ -10,29 +14,90 @@ import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Component;
 import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.cache.BoundedCache;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.impl.FilmStorage;
+import ru.yandex.practicum.filmorate.metrics.Instrumented;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.LikeRequest;
 import ru.yandex.practicum.filmorate.model.Mpa;
-
+import ru.yandex.practicum.filmorate.model.SearchField;
+import ru.yandex.practicum.filmorate.model.Suggestion;
+import ru.yandex.practicum.filmorate.storage.index.AutocompleteIndex;
+import ru.yandex.practicum.filmorate.storage.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.index.IdBitmap;
+import ru.yandex.practicum.filmorate.storage.index.LikeIndex;
+import ru.yandex.practicum.filmorate.storage.index.PopularityLeaderboard;
+import ru.yandex.practicum.filmorate.storage.index.TransactionHooks;
+
+import java.sql.Array;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
 import java.sql.Date;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
 import java.util.*;
 
 @Slf4j
+@Instrumented
 @Component("filmDbStorage")
 @Primary
 @Repository
 public class FilmDbStorageImpl implements FilmStorage {
     private static final Long DEFAULT_MPA_ID = 1L;
+    private static final int LIKES_BATCH_SIZE = 1000;
+    private static final String DUPLICATE_KEY_STATE = "23505";
+    private static final String INSERT_LIKE_SQL = "INSERT INTO likes (film_id, user_id) " +
+            "SELECT CAST(? AS BIGINT), CAST(? AS BIGINT) FROM DUAL " +
+            "WHERE NOT EXISTS (SELECT 1 FROM likes WHERE film_id = ? AND user_id = ?)";
+    private static final String HYDRATED_FILM_SQL = "SELECT f.*, m.name as mpa_name, " +
+            "(SELECT ARRAY_AGG(fg.genre_id ORDER BY fg.genre_id) FROM film_genres fg " +
+            "WHERE fg.film_id = f.film_id) as genre_ids, " +
+            "(SELECT ARRAY_AGG(g.name ORDER BY fg.genre_id) FROM film_genres fg " +
+            "JOIN genres g ON fg.genre_id = g.genre_id " +
+            "WHERE fg.film_id = f.film_id) as genre_names, " +
+            "(SELECT ARRAY_AGG(l.user_id) FROM likes l WHERE l.film_id = f.film_id) as like_ids " +
+            "FROM films f " +
+            "LEFT JOIN mpa_ratings m ON f.mpa_id = m.mpa_id " +
+            "WHERE f.film_id = ?";
 
     private final JdbcTemplate jdbcTemplate;
-
-    public FilmDbStorageImpl(JdbcTemplate jdbcTemplate) {
+    private final PopularityLeaderboard popularityLeaderboard;
+    private final BoundedCache<Long, Film> filmCache;
+    private final LikeWriteBehindBuffer likeBuffer;
+    private final LikeIndex likeIndex;
+    private final FilmSearchIndex searchIndex;
+    private final AutocompleteIndex autocompleteIndex;
+    private final IdBitmap filmIds = new IdBitmap();
+
+    public FilmDbStorageImpl(
+            JdbcTemplate jdbcTemplate,
+            PopularityLeaderboard popularityLeaderboard,
+            @Qualifier("filmCache") BoundedCache<Long, Film> filmCache,
+            LikeWriteBehindBuffer likeBuffer,
+            LikeIndex likeIndex,
+            FilmSearchIndex searchIndex,
+            AutocompleteIndex autocompleteIndex) {
         this.jdbcTemplate = jdbcTemplate;
+        this.popularityLeaderboard = popularityLeaderboard;
+        this.filmCache = filmCache;
+        this.likeBuffer = likeBuffer;
+        this.likeIndex = likeIndex;
+        this.searchIndex = searchIndex;
+        this.autocompleteIndex = autocompleteIndex;
+    }
+
+    @PostConstruct
+    public void loadFilmIds() {
+        filmIds.clear();
+        jdbcTemplate.query("SELECT film_id FROM films", rs -> {
+            filmIds.add(rs.getLong("film_id"));
+        });
+        log.info("Загружены ID фильмов для проверки существования");
     }
 
     @Override
@@ -43,6 +108,17 @@ public class FilmDbStorageImpl implements FilmStorage {
         return jdbcTemplate.query(sql, this::mapRowToFilm);
     }
 
+    @Override
+    public List<Film> getFilms(Long afterId, int limit) {
+        String sql = "SELECT f.*, m.name as mpa_name FROM films f " +
+                "LEFT JOIN mpa_ratings m ON f.mpa_id = m.mpa_id " +
+                "WHERE f.film_id > ? " +
+                "ORDER BY f.film_id " +
+                "LIMIT ?";
+
+        return jdbcTemplate.query(sql, this::mapRowToFilm, afterId != null ? afterId : 0L, limit);
+    }
+
     @Override
     public Film createFilm(Film film) {
         String sql = "INSERT INTO films (name, description, release_date, duration, mpa_id) " +
@@ -72,8 +148,14 @@ public class FilmDbStorageImpl implements FilmStorage {
             saveFilmGenres(filmId, film.getGenres());
         }
 
+        popularityLeaderboard.registerFilm(filmId, film.getReleaseDate().getYear(), genreIds(film.getGenres()));
+        searchIndex.indexFilm(filmId, film.getName(), film.getDescription());
+        autocompleteIndex.putFilm(filmId, film.getName());
+        TransactionHooks.afterCommit(() -> filmIds.add(filmId));
+        film.setLikes(new HashSet<>());
+
         log.info("Фильм создан с ID: {}", filmId);
-        return getFilmById(filmId).orElseThrow();
+        return film;
     }
 
     @Override
@@ -94,31 +176,57 @@ public class FilmDbStorageImpl implements FilmStorage {
         }
 
         updateFilmGenres(film.getId(), film.getGenres());
+        popularityLeaderboard.registerFilm(film.getId(), film.getReleaseDate().getYear(), genreIds(film.getGenres()));
+        searchIndex.indexFilm(film.getId(), film.getName(), film.getDescription());
+        autocompleteIndex.putFilm(film.getId(), film.getName());
+        filmCache.invalidateAfterTransaction(film.getId());
+
+        // Ответ собирается из обновлённых полей, а не через кэш: внутри транзакции кэш
+        // заполнился бы строкой, которая ещё не закоммичена
+        if (film.getGenres() == null) {
+            film.setGenres(new LinkedHashSet<>());
+        }
+        film.setLikes(loadLikes(film.getId()));
 
         log.info("Фильм с ID {} обновлен", film.getId());
-        return getFilmById(film.getId()).orElseThrow();
+        return film;
     }
 
     @Override
     public Optional<Film> getFilmById(Long id) {
-        String sql = "SELECT f.*, m.name as mpa_name FROM films f " +
-                "LEFT JOIN mpa_ratings m ON f.mpa_id = m.mpa_id " +
-                "WHERE f.film_id = ?";
+        return likeBuffer.readWithPending(() -> {
+            Film film = filmCache.get(id, this::loadFilmById);
+            if (film == null) {
+                return Optional.empty();
+            }
 
-        try {
-            Film film = jdbcTemplate.queryForObject(sql, this::mapRowToFilm, id);
-            return Optional.ofNullable(film);
-        } catch (EmptyResultDataAccessException e) {
-            return Optional.empty();
-        }
+            // Закэшированный фильм общий для всех читателей, поэтому наружу отдаётся только копия
+            Map<Long, Set<Long>> likes = new HashMap<>();
+            likes.put(id, new HashSet<>(film.getLikes()));
+            likeBuffer.applyPending(likes, Set.of(id));
+            return Optional.of(copyWithLikes(film, likes.get(id)));
+        });
     }
 
     @Override
+    @Transactional
     public void addLike(Long filmId, Long userId) {
+        if (likeBuffer.isEnabled()) {
+            likeBuffer.addLike(filmId, userId);
+            popularityLeaderboard.increment(filmId);
+            likeIndex.addLike(filmId, userId);
+            log.info("Пользователь {} поставил лайк фильму {} (отложенная запись)", userId, filmId);
+            return;
+        }
+
         String sql = "INSERT INTO likes (film_id, user_id) VALUES (?, ?)";
 
         try {
             jdbcTemplate.update(sql, filmId, userId);
+            adjustLikesCount(filmId, 1);
+            popularityLeaderboard.increment(filmId);
+            likeIndex.addLike(filmId, userId);
+            filmCache.invalidateAfterTransaction(filmId);
             log.info("Пользователь {} поставил лайк фильму {}", userId, filmId);
         } catch (DataAccessException e) {
             throw new NotFoundException("Фильм или пользователь не найден");
@@ -126,39 +234,411 @@ public class FilmDbStorageImpl implements FilmStorage {
     }
 
     @Override
+    @Transactional
     public void removeLike(Long filmId, Long userId) {
+        if (likeBuffer.isEnabled()) {
+            likeBuffer.removeLike(filmId, userId);
+            popularityLeaderboard.decrement(filmId);
+            likeIndex.removeLike(filmId, userId);
+            log.info("Пользователь {} удалил лайк фильму {} (отложенная запись)", userId, filmId);
+            return;
+        }
+
         String sql = "DELETE FROM likes WHERE film_id = ? AND user_id = ?";
 
         int deleted = jdbcTemplate.update(sql, filmId, userId);
         if (deleted == 0) {
             throw new NotFoundException("Лайк не найден");
         }
+        adjustLikesCount(filmId, -1);
+        popularityLeaderboard.decrement(filmId);
+        likeIndex.removeLike(filmId, userId);
+        filmCache.invalidateAfterTransaction(filmId);
         log.info("Пользователь {} удалил лайк фильму {}", userId, filmId);
     }
 
     @Override
-    public List<Film> getPopularFilms(int count) {
-        String sql = "SELECT f.*, m.name as mpa_name, COUNT(l.user_id) as likes_count " +
-                "FROM films f " +
+    @Transactional
+    public List<Boolean> addLikes(List<LikeRequest> likes) {
+        // Несброшенные одиночные лайки должны попасть в БД раньше пакетных
+        likeBuffer.flush();
+
+        List<Boolean> inserted = new ArrayList<>(likes.size());
+        Set<Long> recountFilms = new HashSet<>();
+        for (int from = 0; from < likes.size(); from += LIKES_BATCH_SIZE) {
+            inserted.addAll(insertLikes(likes.subList(from, Math.min(from + LIKES_BATCH_SIZE, likes.size())),
+                    recountFilms));
+        }
+
+        Map<Long, Integer> addedByFilm = new HashMap<>();
+        for (int i = 0; i < likes.size(); i++) {
+            if (inserted.get(i)) {
+                LikeRequest like = likes.get(i);
+                addedByFilm.merge(like.getFilmId(), 1, Integer::sum);
+                likeIndex.addLike(like.getFilmId(), like.getUserId());
+            }
+        }
+
+        String countSql = "UPDATE films SET likes_count = likes_count + ? WHERE film_id = ?";
+        List<Map.Entry<Long, Integer>> deltas = addedByFilm.entrySet().stream()
+                .filter(entry -> !recountFilms.contains(entry.getKey()))
+                .toList();
+        jdbcTemplate.batchUpdate(countSql, deltas, LIKES_BATCH_SIZE, (ps, entry) -> {
+            ps.setInt(1, entry.getValue());
+            ps.setLong(2, entry.getKey());
+        });
+        if (!recountFilms.isEmpty()) {
+            String recountSql = "UPDATE films SET likes_count = " +
+                    "(SELECT COUNT(*) FROM likes l WHERE l.film_id = films.film_id) WHERE film_id = ANY(?)";
+            jdbcTemplate.update(recountSql, ps -> {
+                ps.setArray(1, ps.getConnection().createArrayOf("BIGINT", recountFilms.toArray()));
+            });
+        }
+
+        addedByFilm.forEach((filmId, added) -> {
+            popularityLeaderboard.adjust(filmId, added);
+            filmCache.invalidateAfterTransaction(filmId);
+        });
+
+        log.info("Пакетно добавлено лайков: {} из {}", inserted.stream().filter(Boolean::booleanValue).count(),
+                likes.size());
+        return inserted;
+    }
+
+    /**
+     * Вставляет пакет лайков и возвращает, какие из них добавлены.
+     * <p>
+     * Если параллельный запрос вставил тот же лайк между проверкой NOT EXISTS и вставкой, строка
+     * падает на первичном ключе: такой лайк считается уже поставленным, остальные строки пакета
+     * не теряются. Строки, которые драйвер не выполнил после ошибки, вставляются по одной.
+     * Если драйвер не сообщил результат строки ({@link Statement#SUCCESS_NO_INFO}), её наличие
+     * проверяется запросом, а счётчик лайков фильма пересчитывается по таблице, а не сдвигается.
+     */
+    private List<Boolean> insertLikes(List<LikeRequest> chunk, Set<Long> recountFilms) {
+        int[] counts = jdbcTemplate.execute(INSERT_LIKE_SQL, (PreparedStatement ps) -> {
+            for (LikeRequest like : chunk) {
+                setLike(ps, like);
+                ps.addBatch();
+            }
+            try {
+                return ps.executeBatch();
+            } catch (BatchUpdateException e) {
+                if (!isDuplicateKey(e)) {
+                    throw e;
+                }
+                return e.getUpdateCounts();
+            }
+        });
+
+        List<Boolean> inserted = new ArrayList<>(chunk.size());
+        List<LikeRequest> unknown = new ArrayList<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            LikeRequest like = chunk.get(i);
+            if (i >= counts.length) {
+                inserted.add(insertLike(like));
+            } else if (counts[i] == Statement.SUCCESS_NO_INFO) {
+                inserted.add(null);
+                unknown.add(like);
+            } else {
+                // Statement.EXECUTE_FAILED — лайк вставлен параллельным запросом
+                inserted.add(counts[i] > 0);
+            }
+        }
+
+        if (!unknown.isEmpty()) {
+            Set<LikeRequest> existing = findExistingLikes(unknown);
+            for (int i = 0; i < chunk.size(); i++) {
+                if (inserted.get(i) == null) {
+                    LikeRequest like = chunk.get(i);
+                    inserted.set(i, existing.contains(like));
+                    recountFilms.add(like.getFilmId());
+                }
+            }
+        }
+        return inserted;
+    }
+
+    private boolean insertLike(LikeRequest like) {
+        try {
+            return jdbcTemplate.update(INSERT_LIKE_SQL, ps -> setLike(ps, like)) > 0;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    private Set<LikeRequest> findExistingLikes(List<LikeRequest> likes) {
+        String sql = "SELECT film_id, user_id FROM likes WHERE film_id = ANY(?) AND user_id = ANY(?)";
+        Set<LikeRequest> requested = new HashSet<>(likes);
+        Set<LikeRequest> existing = new HashSet<>();
+        jdbcTemplate.query(sql, ps -> {
+            Connection connection = ps.getConnection();
+            ps.setArray(1, connection.createArrayOf("BIGINT",
+                    likes.stream().map(LikeRequest::getFilmId).distinct().toArray()));
+            ps.setArray(2, connection.createArrayOf("BIGINT",
+                    likes.stream().map(LikeRequest::getUserId).distinct().toArray()));
+        }, rs -> {
+            LikeRequest like = new LikeRequest(rs.getLong("film_id"), rs.getLong("user_id"));
+            if (requested.contains(like)) {
+                existing.add(like);
+            }
+        });
+        return existing;
+    }
+
+    private static boolean isDuplicateKey(SQLException e) {
+        for (SQLException current = e; current != null; current = current.getNextException()) {
+            if (DUPLICATE_KEY_STATE.equals(current.getSQLState())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void setLike(PreparedStatement ps, LikeRequest like) throws SQLException {
+        ps.setLong(1, like.getFilmId());
+        ps.setLong(2, like.getUserId());
+        ps.setLong(3, like.getFilmId());
+        ps.setLong(4, like.getUserId());
+    }
+
+    @Override
+    public List<Film> getPopularFilms(int count, Long genreId, Integer year) {
+        if (popularityLeaderboard.isReady()) {
+            return getFilmsByIds(popularityLeaderboard.top(count, genreId, year));
+        }
+
+        StringBuilder sql = new StringBuilder("SELECT f.*, m.name as mpa_name FROM films f " +
                 "LEFT JOIN mpa_ratings m ON f.mpa_id = m.mpa_id " +
-                "LEFT JOIN likes l ON f.film_id = l.film_id " +
-                "GROUP BY f.film_id, m.name " +
-                "ORDER BY likes_count DESC " +
+                "WHERE 1 = 1");
+        List<Object> args = new ArrayList<>();
+        if (genreId != null) {
+            sql.append(" AND EXISTS (SELECT 1 FROM film_genres fg WHERE fg.film_id = f.film_id AND fg.genre_id = ?)");
+            args.add(genreId);
+        }
+        if (year != null) {
+            // Диапазон по дате, а не EXTRACT(YEAR ...), чтобы работал индекс по release_date
+            sql.append(" AND f.release_date >= ? AND f.release_date < ?");
+            args.add(Date.valueOf(LocalDate.of(year, 1, 1)));
+            args.add(Date.valueOf(LocalDate.of(year + 1, 1, 1)));
+        }
+        sql.append(" ORDER BY f.likes_count DESC, f.film_id LIMIT ?");
+        args.add(count);
+
+        return jdbcTemplate.query(sql.toString(), this::mapRowToFilm, args.toArray());
+    }
+
+    @Override
+    public List<Film> getRecommendedFilms(Long userId, int limit) {
+        if (likeIndex.isReady()) {
+            return getFilmsByIds(toList(likeIndex.recommend(userId, limit)));
+        }
+
+        // Соседи — пользователи с наибольшим числом общих лайков, фильмы ранжируются по сумме совпадений
+        String sql = "SELECT f.*, m.name as mpa_name FROM films f " +
+                "LEFT JOIN mpa_ratings m ON f.mpa_id = m.mpa_id " +
+                "JOIN (SELECT l.film_id, SUM(n.overlap) AS score FROM likes l " +
+                "JOIN (SELECT other.user_id, COUNT(*) AS overlap FROM likes own " +
+                "JOIN likes other ON other.film_id = own.film_id AND other.user_id <> own.user_id " +
+                "WHERE own.user_id = ? " +
+                "GROUP BY other.user_id ORDER BY overlap DESC, other.user_id LIMIT ?) n " +
+                "ON l.user_id = n.user_id " +
+                "WHERE l.film_id NOT IN (SELECT film_id FROM likes WHERE user_id = ?) " +
+                "GROUP BY l.film_id) r ON r.film_id = f.film_id " +
+                "ORDER BY r.score DESC, f.film_id " +
                 "LIMIT ?";
 
-        return jdbcTemplate.query(sql, this::mapRowToFilm, count);
+        return jdbcTemplate.query(sql, this::mapRowToFilm, userId, likeIndex.getMaxNeighbours(), userId, limit);
+    }
+
+    @Override
+    public List<Film> searchFilms(String query, Set<SearchField> fields, int limit) {
+        if (searchIndex.isReady()) {
+            return getFilmsByIds(searchIndex.search(query, fields, limit));
+        }
+
+        List<String> tokens = FilmSearchIndex.tokenize(query);
+        if (tokens.isEmpty() || fields.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        // Без индекса релевантность не считается: совпадения по подстроке упорядочены по лайкам
+        StringBuilder sql = new StringBuilder("SELECT f.*, m.name as mpa_name FROM films f " +
+                "LEFT JOIN mpa_ratings m ON f.mpa_id = m.mpa_id " +
+                "WHERE 1 = 1");
+        List<Object> args = new ArrayList<>();
+        for (String token : tokens) {
+            List<String> conditions = new ArrayList<>();
+            if (fields.contains(SearchField.TITLE)) {
+                conditions.add("LOWER(f.name) LIKE ?");
+                args.add("%" + token + "%");
+            }
+            if (fields.contains(SearchField.DESCRIPTION)) {
+                conditions.add("LOWER(f.description) LIKE ?");
+                args.add("%" + token + "%");
+            }
+            sql.append(" AND (").append(String.join(" OR ", conditions)).append(")");
+        }
+        sql.append(" ORDER BY f.likes_count DESC, f.film_id LIMIT ?");
+        args.add(limit);
+
+        return jdbcTemplate.query(sql.toString(), this::mapRowToFilm, args.toArray());
+    }
+
+    @Override
+    public List<Suggestion> suggestTitles(String prefix, int limit) {
+        if (autocompleteIndex.isReady()) {
+            return autocompleteIndex.suggestFilms(prefix, limit);
+        }
+
+        String sql = "SELECT film_id, name FROM films WHERE LOWER(name) LIKE ? ESCAPE '\\' " +
+                "ORDER BY LOWER(name), film_id LIMIT ?";
+        return jdbcTemplate.query(sql, (rs, rowNum) -> new Suggestion(rs.getLong("film_id"), rs.getString("name")),
+                SqlPatterns.likePrefix(prefix), limit);
     }
 
     @Override
     public boolean existsById(Long id) {
+        if (id == null) {
+            return false;
+        }
+        if (filmIds.contains(id)) {
+            return true;
+        }
+
         String sql = "SELECT COUNT(*) FROM films WHERE film_id = ?";
         Integer count = jdbcTemplate.queryForObject(sql, Integer.class, id);
         boolean exists = count != null && count > 0;
+        if (exists) {
+            // Строка может быть ещё не закоммичена текущей транзакцией и пропасть при откате
+            TransactionHooks.afterCommit(() -> filmIds.add(id));
+        }
         return exists;
     }
 
+    @Override
+    public Set<Long> findExistingIds(Collection<Long> ids) {
+        Set<Long> existing = new HashSet<>();
+        List<Long> unknown = new ArrayList<>();
+        for (Long id : ids) {
+            if (filmIds.contains(id)) {
+                existing.add(id);
+            } else {
+                unknown.add(id);
+            }
+        }
+
+        if (!unknown.isEmpty()) {
+            String sql = "SELECT film_id FROM films WHERE film_id = ANY(?)";
+            List<Long> found = new ArrayList<>();
+            jdbcTemplate.query(sql, ps -> {
+                ps.setArray(1, ps.getConnection().createArrayOf("BIGINT", unknown.toArray()));
+            }, rs -> {
+                found.add(rs.getLong("film_id"));
+            });
+            existing.addAll(found);
+            TransactionHooks.afterCommit(() -> found.forEach(filmIds::add));
+        }
+
+        return existing;
+    }
+
     @Override
     public void deleteFilm(Long id) {
+        String sql = "DELETE FROM films WHERE film_id = ?";
+
+        int deleted = jdbcTemplate.update(sql, id);
+        if (deleted == 0) {
+            throw new NotFoundException("Фильм с ID " + id + " не найден");
+        }
+
+        // Сразу — чтобы не подтверждать удаляемую строку, и после коммита — на случай,
+        // если параллельная проверка успела вернуть её в набор до коммита
+        filmIds.remove(id);
+        TransactionHooks.afterCommit(() -> filmIds.remove(id));
+        popularityLeaderboard.removeFilm(id);
+        likeIndex.removeFilm(id);
+        searchIndex.removeFilm(id);
+        autocompleteIndex.removeFilm(id);
+        filmCache.invalidateAfterTransaction(id);
+        log.info("Фильм с ID {} удален", id);
+    }
+
+    private Film copyWithLikes(Film film, Set<Long> likes) {
+        return Film.builder()
+                .id(film.getId())
+                .name(film.getName())
+                .description(film.getDescription())
+                .releaseDate(film.getReleaseDate())
+                .duration(film.getDuration())
+                .mpa(film.getMpa())
+                .genres(new LinkedHashSet<>(film.getGenres()))
+                .likes(likes)
+                .build();
+    }
+
+    private Film loadFilmById(Long id) {
+        try {
+            return jdbcTemplate.queryForObject(HYDRATED_FILM_SQL, this::mapRowToHydratedFilm, id);
+        } catch (EmptyResultDataAccessException e) {
+            return null;
+        }
+    }
+
+    private Set<Long> loadLikes(Long filmId) {
+        String sql = "SELECT user_id FROM likes WHERE film_id = ?";
+        return likeBuffer.readWithPending(() -> {
+            Map<Long, Set<Long>> likes = new HashMap<>();
+            likes.put(filmId, new HashSet<>(jdbcTemplate.queryForList(sql, Long.class, filmId)));
+            likeBuffer.applyPending(likes, Set.of(filmId));
+            return likes.get(filmId);
+        });
+    }
+
+    private void adjustLikesCount(Long filmId, int delta) {
+        String sql = "UPDATE films SET likes_count = likes_count + ? WHERE film_id = ?";
+        jdbcTemplate.update(sql, delta, filmId);
+    }
+
+    private static long[] genreIds(Set<Genre> genres) {
+        if (genres == null) {
+            return new long[0];
+        }
+        return genres.stream().mapToLong(Genre::getId).toArray();
+    }
+
+    private static List<Long> toList(long[] ids) {
+        List<Long> result = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            result.add(id);
+        }
+        return result;
+    }
+
+    private List<Film> getFilmsByIds(List<Long> filmIds) {
+        if (filmIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        String sql = "SELECT f.*, m.name as mpa_name FROM films f " +
+                "LEFT JOIN mpa_ratings m ON f.mpa_id = m.mpa_id " +
+                "WHERE f.film_id = ANY(?)";
+
+        Map<Long, Film> filmsById = new HashMap<>();
+        jdbcTemplate.query(sql, ps -> {
+            ps.setArray(1, ps.getConnection().createArrayOf("BIGINT", filmIds.toArray()));
+        }, rs -> {
+            Film film = mapRowToFilm(rs, rs.getRow());
+            filmsById.put(film.getId(), film);
+        });
+
+        List<Film> films = new ArrayList<>(filmIds.size());
+        for (Long filmId : filmIds) {
+            Film film = filmsById.get(filmId);
+            if (film != null) {
+                films.add(film);
+            }
+        }
+        return films;
     }
 
     private void saveFilmGenres(Long filmId, Set<Genre> genres) {
@@ -208,4 +688,37 @@ public class FilmDbStorageImpl implements FilmStorage {
                 .mpa(mpa)
                 .build();
     }
+
+    private Film mapRowToHydratedFilm(ResultSet rs, int rowNum) throws SQLException {
+        Film film = mapRowToFilm(rs, rowNum);
+
+        Object[] genreIds = readArray(rs, "genre_ids");
+        Object[] genreNames = readArray(rs, "genre_names");
+        Set<Genre> genres = new LinkedHashSet<>();
+        for (int i = 0; i < genreIds.length; i++) {
+            genres.add(new Genre(((Number) genreIds[i]).longValue(), (String) genreNames[i]));
+        }
+        film.setGenres(genres);
+
+        Set<Long> likes = new HashSet<>();
+        for (Object userId : readArray(rs, "like_ids")) {
+            likes.add(((Number) userId).longValue());
+        }
+        film.setLikes(likes);
+
+        return film;
+    }
+
+    private Object[] readArray(ResultSet rs, String column) throws SQLException {
+        Array array = rs.getArray(column);
+        if (array == null) {
+            return new Object[0];
+        }
+
+        try {
+            return (Object[]) array.getArray();
+        } finally {
+            array.free();
+        }
+    }
 }
\ No newline at end of file
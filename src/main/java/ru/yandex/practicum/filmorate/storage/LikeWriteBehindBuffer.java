@@ -0,0 +1,552 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.sql.init.DatabaseInitializationMode;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.cache.BoundedCache;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Отложенная запись лайков: изменения копятся в памяти и в журнале на диске,
+ * взаимно гасящие друг друга пары «поставил/убрал» схлопываются, а в БД изменения
+ * сбрасываются пакетами по размеру буфера или по таймеру.
+ * <p>
+ * Журнал разбит на поколения: при каждом сбросе текущий файл становится сегментом и удаляется
+ * после коммита. Запись в журнал идёт без блокировки подмены, поэтому изменение, записанное
+ * в уже закрытое поколение, дописывается ещё раз в текущее.
+ * <p>
+ * Журнал переживает перезапуск, только если схема БД сохраняется между запусками. При
+ * {@code spring.sql.init.mode=always} schema.sql пересоздаёт таблицы, фильмы и пользователи из журнала
+ * уже не существуют, поэтому журнал не воспроизводится, а откладывается в файлы {@code .discarded}.
+ */
+@Slf4j
+@Component
+public class LikeWriteBehindBuffer {
+    private static final String CURRENT_SEGMENT = "current.journal";
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final int LOCK_STRIPES = 64;
+    private static final int FLUSH_BATCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final BoundedCache<Long, Film> filmCache;
+    private final boolean enabled;
+    private final int flushSize;
+    private final Path journalDir;
+    private final boolean fsync;
+    private final boolean schemaRecreatedOnStart;
+
+    private final Map<LikeKey, Boolean> pending = new ConcurrentHashMap<>();
+    private volatile Map<LikeKey, Boolean> inFlight = Map.of();
+    private Path inFlightSegment;
+
+    private final ReentrantReadWriteLock swapLock = new ReentrantReadWriteLock();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final ReentrantLock[] keyLocks = new ReentrantLock[LOCK_STRIPES];
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final AtomicLong segmentSequence = new AtomicLong();
+
+    private ExecutorService flushExecutor;
+    private volatile Journal journal;
+
+    public LikeWriteBehindBuffer(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            @Qualifier("filmCache") BoundedCache<Long, Film> filmCache,
+            @Value("${filmorate.likes.write-behind.enabled:false}") boolean enabled,
+            @Value("${filmorate.likes.write-behind.flush-size:1000}") int flushSize,
+            @Value("${filmorate.likes.write-behind.journal-dir:./db/likes-journal}") Path journalDir,
+            @Value("${filmorate.likes.write-behind.fsync:true}") boolean fsync,
+            @Value("${spring.sql.init.mode:embedded}") DatabaseInitializationMode sqlInitMode) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // Сброс не должен зависеть от транзакции вызывающего: её откат не вернул бы изменения в буфер
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.filmCache = filmCache;
+        this.enabled = enabled;
+        this.flushSize = flushSize;
+        this.journalDir = journalDir;
+        this.fsync = fsync;
+        this.schemaRecreatedOnStart = sqlInitMode == DatabaseInitializationMode.ALWAYS;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            keyLocks[i] = new ReentrantLock();
+        }
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!enabled) {
+            return;
+        }
+
+        Files.createDirectories(journalDir);
+        if (schemaRecreatedOnStart) {
+            discardJournal();
+        } else {
+            replayJournal();
+        }
+        journal = openJournal(0);
+        flushExecutor = Executors.newSingleThreadExecutor(
+                Thread.ofPlatform().name("likes-flush").daemon(true).factory());
+        log.info("Отложенная запись лайков включена, журнал: {}", journalDir.toAbsolutePath());
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        if (!enabled) {
+            return;
+        }
+
+        flushExecutor.shutdown();
+        flush();
+        journal.channel().close();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void addLike(long filmId, long userId) {
+        enqueue(new LikeKey(filmId, userId), true);
+    }
+
+    public void removeLike(long filmId, long userId) {
+        enqueue(new LikeKey(filmId, userId), false);
+    }
+
+    public boolean hasPending() {
+        return !pending.isEmpty() || !inFlight.isEmpty();
+    }
+
+    public void applyPending(Map<Long, Set<Long>> likesByFilm, Collection<Long> filmIds) {
+        if (!hasPending()) {
+            return;
+        }
+
+        Set<Long> requested = filmIds instanceof Set<Long> set ? set : new HashSet<>(filmIds);
+        applyChanges(likesByFilm, requested, inFlight);
+        applyChanges(likesByFilm, requested, pending);
+    }
+
+    /**
+     * Выполняет чтение лайков (из БД или кэша) вместе с наложением {@link #applyPending}. Сброс
+     * снимает сбрасываемые изменения и инвалидирует кэш только между такими чтениями, поэтому
+     * чтение не может получить старые лайки и уже пустой буфер.
+     */
+    public <T> T readWithPending(Supplier<T> read) {
+        if (!enabled) {
+            return read.get();
+        }
+
+        swapLock.readLock().lock();
+        try {
+            return read.get();
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Выполняет чтение из БД, во время которого ни один сброс не фиксируется, а затем передаёт
+     * несброшенные изменения. Так каждое изменение попадает либо в прочитанное, либо в переданное,
+     * но не в оба сразу. Новые лайки на время чтения принимаются в буфер, откладываются только сбросы.
+     */
+    public void readConsistently(Runnable read, LikeChangeConsumer pendingConsumer) {
+        if (!enabled) {
+            read.run();
+            return;
+        }
+
+        flushLock.lock();
+        try {
+            read.run();
+            forEachPending(pendingConsumer);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Передаёт несброшенные изменения в порядке их применения: сначала сбрасываемые, затем новые.
+     */
+    public void forEachPending(LikeChangeConsumer consumer) {
+        inFlight.forEach((key, add) -> consumer.accept(key.filmId(), key.userId(), add));
+        pending.forEach((key, add) -> consumer.accept(key.filmId(), key.userId(), add));
+    }
+
+    @Scheduled(fixedDelayString = "${filmorate.likes.write-behind.flush-interval-ms:1000}")
+    public void scheduledFlush() {
+        if (enabled) {
+            flush();
+        }
+    }
+
+    public void flush() {
+        if (!enabled) {
+            return;
+        }
+
+        flushLock.lock();
+        try {
+            flushRequested.set(false);
+
+            // Если прошлый сброс упал, сначала повторяем его, сохраняя порядок изменений
+            if (inFlight.isEmpty()) {
+                swapLock.writeLock().lock();
+                try {
+                    if (pending.isEmpty()) {
+                        // Все записи журнала взаимно погасились, сбрасывать нечего. Журнал не обрезается,
+                        // а сменяется: в него могли записать изменение, ещё не попавшее в буфер
+                        if (journal.channel().size() > 0) {
+                            Files.delete(rotateJournal());
+                        }
+                        return;
+                    }
+                    inFlight = Map.copyOf(pending);
+                    pending.clear();
+                    inFlightSegment = rotateJournal();
+                } finally {
+                    swapLock.writeLock().unlock();
+                }
+            }
+
+            Map<LikeKey, Boolean> changes = inFlight;
+            Set<Long> touchedFilms = writeIsolatingRejected(changes);
+            // Чтение, взявшее фильм из кэша до инвалидации, ещё должно увидеть сбрасываемые изменения
+            swapLock.writeLock().lock();
+            try {
+                touchedFilms.forEach(filmCache::invalidate);
+                inFlight = Map.of();
+            } finally {
+                swapLock.writeLock().unlock();
+            }
+            Files.deleteIfExists(inFlightSegment);
+
+            log.debug("Сброшено изменений лайков в БД: {}", changes.size());
+        } catch (DataAccessException | IOException e) {
+            log.error("Не удалось сбросить лайки в БД, попытка будет повторена", e);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void enqueue(LikeKey key, boolean add) {
+        if (!enabled) {
+            throw new IllegalStateException("Отложенная запись лайков выключена");
+        }
+
+        // Блокировка ключа упорядочивает операции над одной парой, запрос к БД и запись
+        // в журнал идут вне блокировки подмены и не задерживают сброс
+        ReentrantLock keyLock = keyLocks[Math.floorMod(key.hashCode(), LOCK_STRIPES)];
+        keyLock.lock();
+        try {
+            if (isLiked(key) == add) {
+                throw new NotFoundException(add ? "Фильм или пользователь не найден" : "Лайк не найден");
+            }
+
+            long writtenGeneration = appendToJournal(key, add);
+
+            long currentGeneration;
+            swapLock.readLock().lock();
+            try {
+                // Противоположная операция по тому же ключу ещё не сброшена — они взаимно гасятся
+                if (pending.remove(key) == null) {
+                    pending.put(key, add);
+                }
+                currentGeneration = journal.generation();
+            } finally {
+                swapLock.readLock().unlock();
+            }
+
+            // Сегмент, куда ушла запись, удалится после сброса, в который это изменение не попало
+            if (writtenGeneration != currentGeneration) {
+                appendToJournal(key, add);
+            }
+        } finally {
+            keyLock.unlock();
+        }
+
+        if (pending.size() >= flushSize && flushRequested.compareAndSet(false, true)) {
+            flushExecutor.execute(this::flush);
+        }
+    }
+
+    private boolean isLiked(LikeKey key) {
+        Boolean state = pending.get(key);
+        if (state == null) {
+            state = inFlight.get(key);
+        }
+        if (state != null) {
+            return state;
+        }
+
+        String sql = "SELECT COUNT(*) FROM likes WHERE film_id = ? AND user_id = ?";
+        Integer count = jdbcTemplate.queryForObject(sql, Integer.class, key.filmId(), key.userId());
+        return count != null && count > 0;
+    }
+
+    /**
+     * Пишет изменения одной транзакцией. Если БД отвергла пакет из-за ограничений (например,
+     * фильм или пользователь удалён после постановки лайка), изменения пишутся по одному,
+     * а отвергнутые отбрасываются: иначе один такой ключ навсегда блокировал бы сброс.
+     * Остальные ошибки пробрасываются, и пакет повторяется целиком — повторная запись безопасна.
+     */
+    private Set<Long> writeIsolatingRejected(Map<LikeKey, Boolean> changes) {
+        try {
+            return writeChanges(changes);
+        } catch (DataIntegrityViolationException e) {
+            log.warn("БД отвергла пакет изменений лайков, изменения записываются по одному: {}", e.getMessage());
+        }
+
+        Set<Long> touchedFilms = new HashSet<>();
+        changes.forEach((key, add) -> {
+            try {
+                touchedFilms.addAll(writeChanges(Map.of(key, add)));
+            } catch (DataIntegrityViolationException e) {
+                log.warn("Изменение лайка фильма {} пользователем {} отброшено: {}",
+                        key.filmId(), key.userId(), e.getMessage());
+            }
+        });
+        return touchedFilms;
+    }
+
+    private Set<Long> writeChanges(Map<LikeKey, Boolean> changes) {
+        List<LikeKey> adds = new ArrayList<>();
+        List<LikeKey> removes = new ArrayList<>();
+        changes.forEach((key, add) -> (add ? adds : removes).add(key));
+
+        return transactionTemplate.execute(status -> {
+            Map<Long, Integer> deltas = new HashMap<>();
+
+            String insertSql = "INSERT INTO likes (film_id, user_id) " +
+                    "SELECT CAST(? AS BIGINT), CAST(? AS BIGINT) FROM DUAL " +
+                    "WHERE NOT EXISTS (SELECT 1 FROM likes WHERE film_id = ? AND user_id = ?)";
+            int[][] inserted = jdbcTemplate.batchUpdate(insertSql, adds, FLUSH_BATCH_SIZE, (ps, key) -> {
+                ps.setLong(1, key.filmId());
+                ps.setLong(2, key.userId());
+                ps.setLong(3, key.filmId());
+                ps.setLong(4, key.userId());
+            });
+            collectAffected(deltas, adds, inserted, 1);
+
+            String deleteSql = "DELETE FROM likes WHERE film_id = ? AND user_id = ?";
+            int[][] deleted = jdbcTemplate.batchUpdate(deleteSql, removes, FLUSH_BATCH_SIZE, (ps, key) -> {
+                ps.setLong(1, key.filmId());
+                ps.setLong(2, key.userId());
+            });
+            collectAffected(deltas, removes, deleted, -1);
+
+            String countSql = "UPDATE films SET likes_count = likes_count + ? WHERE film_id = ?";
+            jdbcTemplate.batchUpdate(countSql, deltas.entrySet(), FLUSH_BATCH_SIZE, (ps, entry) -> {
+                ps.setInt(1, entry.getValue());
+                ps.setLong(2, entry.getKey());
+            });
+
+            Set<Long> touchedFilms = new HashSet<>();
+            changes.keySet().forEach(key -> touchedFilms.add(key.filmId()));
+            return touchedFilms;
+        });
+    }
+
+    private void collectAffected(Map<Long, Integer> deltas, List<LikeKey> keys, int[][] counts, int sign) {
+        int index = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                if (count > 0) {
+                    deltas.merge(keys.get(index).filmId(), sign, Integer::sum);
+                }
+                index++;
+            }
+        }
+    }
+
+    private void applyChanges(Map<Long, Set<Long>> likesByFilm, Set<Long> filmIds, Map<LikeKey, Boolean> changes) {
+        changes.forEach((key, add) -> {
+            if (!filmIds.contains(key.filmId())) {
+                return;
+            }
+            Set<Long> likes = likesByFilm.computeIfAbsent(key.filmId(), id -> new HashSet<>());
+            if (add) {
+                likes.add(key.userId());
+            } else {
+                likes.remove(key.userId());
+            }
+        });
+    }
+
+    /**
+     * Дописывает изменение в текущий журнал и возвращает поколение журнала, в который оно попало.
+     * Если журнал закрыли во время записи, запись повторяется в новый.
+     */
+    private long appendToJournal(LikeKey key, boolean add) {
+        byte[] line = ((add ? "A " : "R ") + key.filmId() + " " + key.userId() + "\n")
+                .getBytes(StandardCharsets.US_ASCII);
+        while (true) {
+            Journal current = journal;
+            try {
+                current.channel().write(ByteBuffer.wrap(line));
+            } catch (ClosedChannelException e) {
+                // Журнал сменяется под блокировкой подмены: дожидаемся нового и пишем в него
+                swapLock.readLock().lock();
+                try {
+                    if (journal == current) {
+                        throw new UncheckedIOException("Журнал лайков закрыт", e);
+                    }
+                } finally {
+                    swapLock.readLock().unlock();
+                }
+                continue;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Не удалось записать лайк в журнал", e);
+            }
+
+            if (fsync) {
+                try {
+                    current.channel().force(false);
+                } catch (ClosedChannelException e) {
+                    // Журнал сменился: вызывающий увидит старое поколение и повторит запись в новый
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Не удалось записать лайк в журнал", e);
+                }
+            }
+            return current.generation();
+        }
+    }
+
+    private Journal openJournal(long generation) throws IOException {
+        FileChannel channel = FileChannel.open(journalDir.resolve(CURRENT_SEGMENT),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        return new Journal(channel, generation);
+    }
+
+    private Path rotateJournal() throws IOException {
+        Journal current = journal;
+        current.channel().force(true);
+        current.channel().close();
+        Path segment = journalDir.resolve(String.format("%s%020d-%06d.journal",
+                SEGMENT_PREFIX, System.currentTimeMillis(), segmentSequence.incrementAndGet()));
+        Files.move(journalDir.resolve(CURRENT_SEGMENT), segment, StandardCopyOption.ATOMIC_MOVE);
+        journal = openJournal(current.generation() + 1);
+        return segment;
+    }
+
+    private void replayJournal() throws IOException {
+        List<Path> segments = journalSegments();
+        if (segments.isEmpty()) {
+            return;
+        }
+
+        // Итоговое состояние каждой пары определяется последней операцией в журнале
+        Map<LikeKey, Boolean> changes = new LinkedHashMap<>();
+        for (Path segment : segments) {
+            try (BufferedReader reader = Files.newBufferedReader(segment, StandardCharsets.US_ASCII)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] parts = line.split(" ");
+                    if (parts.length != 3) {
+                        log.warn("Пропущена повреждённая запись журнала лайков: '{}'", line);
+                        continue;
+                    }
+                    LikeKey key = new LikeKey(Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+                    changes.remove(key);
+                    changes.put(key, "A".equals(parts[0]));
+                }
+            }
+        }
+
+        try {
+            writeIsolatingRejected(changes);
+            for (Path segment : segments) {
+                Files.delete(segment);
+            }
+            log.info("Из журнала восстановлено изменений лайков: {}", changes.size());
+        } catch (DataAccessException e) {
+            for (Path segment : segments) {
+                Files.move(segment, segment.resolveSibling(segment.getFileName() + ".failed"),
+                        StandardCopyOption.REPLACE_EXISTING);
+            }
+            log.error("Не удалось восстановить лайки из журнала, сегменты помечены как .failed", e);
+        }
+    }
+
+    private void discardJournal() throws IOException {
+        List<Path> segments = journalSegments();
+        for (Path segment : segments) {
+            Files.move(segment, segment.resolveSibling(segment.getFileName() + ".discarded"),
+                    StandardCopyOption.REPLACE_EXISTING);
+        }
+        if (!segments.isEmpty()) {
+            log.warn("Схема БД пересоздаётся при запуске (spring.sql.init.mode=always), журнал лайков "
+                    + "не воспроизводится, сегменты помечены как .discarded: {}", segments.size());
+        }
+    }
+
+    private List<Path> journalSegments() throws IOException {
+        List<Path> segments;
+        try (Stream<Path> files = Files.list(journalDir)) {
+            segments = files
+                    .filter(path -> path.getFileName().toString().startsWith(SEGMENT_PREFIX))
+                    .filter(path -> path.getFileName().toString().endsWith(".journal"))
+                    .sorted()
+                    .collect(Collectors.toCollection(ArrayList::new));
+        }
+        Path current = journalDir.resolve(CURRENT_SEGMENT);
+        if (Files.exists(current)) {
+            segments.add(current);
+        }
+        return segments;
+    }
+
+    private record LikeKey(long filmId, long userId) {
+    }
+
+    private record Journal(FileChannel channel, long generation) {
+    }
+
+    @FunctionalInterface
+    public interface LikeChangeConsumer {
+        void accept(long filmId, long userId, boolean add);
+    }
+}
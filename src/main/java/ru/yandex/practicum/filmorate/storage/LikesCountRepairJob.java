@@ -0,0 +1,66 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.index.PopularityLeaderboard;
+
+import java.util.List;
+
+@Slf4j
+@Component
+public class LikesCountRepairJob {
+    private final JdbcTemplate jdbcTemplate;
+    private final PopularityLeaderboard popularityLeaderboard;
+
+    public LikesCountRepairJob(JdbcTemplate jdbcTemplate, PopularityLeaderboard popularityLeaderboard) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.popularityLeaderboard = popularityLeaderboard;
+    }
+
+    @Scheduled(cron = "${filmorate.likes-count.repair-cron:0 30 3 * * *}")
+    public void scheduledRepair() {
+        repair();
+    }
+
+    /**
+     * Пересчитывает расходящиеся счётчики одним UPDATE: значение берётся из likes в момент записи,
+     * поэтому лайк, поставленный между поиском расхождений и исправлением, не теряется.
+     * Найденные расхождения нужны только для журнала.
+     */
+    public List<Drift> repair() {
+        String selectSql = "SELECT f.film_id, f.likes_count, COUNT(l.user_id) AS actual_count " +
+                "FROM films f " +
+                "LEFT JOIN likes l ON f.film_id = l.film_id " +
+                "GROUP BY f.film_id, f.likes_count " +
+                "HAVING f.likes_count <> COUNT(l.user_id)";
+
+        List<Drift> drifts = jdbcTemplate.query(selectSql, (rs, rowNum) -> new Drift(
+                rs.getLong("film_id"),
+                rs.getLong("likes_count"),
+                rs.getLong("actual_count")));
+
+        if (drifts.isEmpty()) {
+            log.info("Счётчики лайков совпадают с таблицей likes");
+            return drifts;
+        }
+
+        String updateSql = "UPDATE films SET likes_count = " +
+                "(SELECT COUNT(*) FROM likes l WHERE l.film_id = films.film_id) " +
+                "WHERE likes_count <> (SELECT COUNT(*) FROM likes l WHERE l.film_id = films.film_id)";
+        int repaired = jdbcTemplate.update(updateSql);
+
+        for (Drift drift : drifts) {
+            log.warn("Счётчик лайков фильма {} расходился с таблицей likes: {} -> {}",
+                    drift.filmId(), drift.storedCount(), drift.actualCount());
+        }
+        log.warn("Исправлено счётчиков лайков: {}", repaired);
+
+        popularityLeaderboard.reconcile();
+        return drifts;
+    }
+
+    public record Drift(long filmId, long storedCount, long actualCount) {
+    }
+}
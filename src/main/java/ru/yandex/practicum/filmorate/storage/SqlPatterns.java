@@ -0,0 +1,19 @@
+package ru.yandex.practicum.filmorate.storage;
+
+final class SqlPatterns {
+
+    private SqlPatterns() {
+    }
+
+    /**
+     * Шаблон {@code LIKE} для поиска по префиксу без учёта регистра. Спецсимволы экранируются
+     * обратной косой чертой, поэтому запрос должен объявлять {@code ESCAPE '\'}.
+     */
+    static String likePrefix(String prefix) {
+        String escaped = prefix.toLowerCase()
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+        return escaped + "%";
+    }
+}
@@ -1,6 +1,8 @@
 package ru.yandex.practicum.filmorate.storage;
 
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Primary;
 import org.springframework.dao.DataAccessException;
 import org.springframework.dao.EmptyResultDataAccessException;
@@ -8,26 +10,66 @@ import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.cache.BoundedCache;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.impl.UserStorage;
+import ru.yandex.practicum.filmorate.metrics.Instrumented;
+import ru.yandex.practicum.filmorate.model.Suggestion;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.index.AutocompleteIndex;
+import ru.yandex.practicum.filmorate.storage.index.FriendGraph;
+import ru.yandex.practicum.filmorate.storage.index.IdBitmap;
+import ru.yandex.practicum.filmorate.storage.index.LikeIndex;
+import ru.yandex.practicum.filmorate.storage.index.TransactionHooks;
 
 import java.sql.Date;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 
 @Slf4j
+@Instrumented
 @Component("userDbStorage")
 @Primary
 public class UserDbStorageImpl implements UserStorage {
     private final JdbcTemplate jdbcTemplate;
+    private final FriendGraph friendGraph;
+    private final LikeIndex likeIndex;
+    private final AutocompleteIndex autocompleteIndex;
+    private final BoundedCache<Long, User> userCache;
+    private final IdBitmap userIds = new IdBitmap();
 
-    public UserDbStorageImpl(JdbcTemplate jdbcTemplate) {
+    public UserDbStorageImpl(
+            JdbcTemplate jdbcTemplate,
+            FriendGraph friendGraph,
+            LikeIndex likeIndex,
+            AutocompleteIndex autocompleteIndex,
+            @Qualifier("userCache") BoundedCache<Long, User> userCache) {
         this.jdbcTemplate = jdbcTemplate;
+        this.friendGraph = friendGraph;
+        this.likeIndex = likeIndex;
+        this.autocompleteIndex = autocompleteIndex;
+        this.userCache = userCache;
+    }
+
+    @PostConstruct
+    public void loadUserIds() {
+        userIds.clear();
+        jdbcTemplate.query("SELECT user_id FROM users", rs -> {
+            userIds.add(rs.getLong("user_id"));
+        });
+        log.info("Загружены ID пользователей для проверки существования");
     }
 
     @Override
@@ -37,6 +79,12 @@ public class UserDbStorageImpl implements UserStorage {
         return jdbcTemplate.query(sql, this::mapRowToUser);
     }
 
+    @Override
+    public List<User> getUsers(Long afterId, int limit) {
+        String sql = "SELECT * FROM users WHERE user_id > ? ORDER BY user_id LIMIT ?";
+        return jdbcTemplate.query(sql, this::mapRowToUser, afterId != null ? afterId : 0L, limit);
+    }
+
     @Override
     public User createUser(User user) {
         String sql = "INSERT INTO users (email, login, name, birthday) VALUES (?, ?, ?, ?)";
@@ -54,6 +102,8 @@ public class UserDbStorageImpl implements UserStorage {
 
         Long userId = Objects.requireNonNull(keyHolder.getKey()).longValue();
         user.setId(userId);
+        TransactionHooks.afterCommit(() -> userIds.add(userId));
+        autocompleteIndex.putUser(userId, user.getLogin());
 
         log.info("Пользователь создан с ID: {}", userId);
         return user;
@@ -75,6 +125,7 @@ public class UserDbStorageImpl implements UserStorage {
             throw new NotFoundException("Пользователь с ID " + user.getId() + " не найден");
         }
 
+        autocompleteIndex.putUser(user.getId(), user.getLogin());
         log.info("Пользователь с ID {} обновлен", user.getId());
         return user;
     }
@@ -91,12 +142,26 @@ public class UserDbStorageImpl implements UserStorage {
         }
     }
 
+    @Override
+    public List<User> getUsersByIds(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        String sql = "SELECT * FROM users WHERE user_id = ANY(?) ORDER BY user_id";
+
+        return jdbcTemplate.query(sql, ps -> {
+            ps.setArray(1, ps.getConnection().createArrayOf("BIGINT", ids.toArray()));
+        }, this::mapRowToUser);
+    }
+
     @Override
     public void addFriend(Long userId, Long friendId) {
         String sql = "INSERT INTO friendships (user_id, friend_id, status) VALUES (?, ?, 'CONFIRMED')";
 
         try {
             jdbcTemplate.update(sql, userId, friendId);
+            friendGraph.addFriend(userId, friendId);
             log.info("Пользователь {} добавил в друзья пользователя {}", userId, friendId);
         } catch (DataAccessException e) {
             throw new NotFoundException("Пользователь не найден");
@@ -111,12 +176,17 @@ public class UserDbStorageImpl implements UserStorage {
         if (deleted == 0) {
             log.debug("Дружба между пользователями {} и {} не найдена", userId, friendId);
         } else {
+            friendGraph.removeFriend(userId, friendId);
             log.info("Пользователь {} удалил из друзей пользователя {}", userId, friendId);
         }
     }
 
     @Override
     public List<User> getFriends(Long userId) {
+        if (friendGraph.isReady()) {
+            return getUsersByIds(toList(friendGraph.friends(userId)));
+        }
+
         String sql = "SELECT u.* FROM users u " +
                 "JOIN friendships f ON u.user_id = f.friend_id " +
                 "WHERE f.user_id = ?";
@@ -127,6 +197,10 @@ public class UserDbStorageImpl implements UserStorage {
 
     @Override
     public List<User> getCommonFriends(Long userId, Long otherId) {
+        if (friendGraph.isReady()) {
+            return getUsersByIds(toList(friendGraph.commonFriends(userId, otherId)));
+        }
+
         String sql = "SELECT u.* FROM users u " +
                 "JOIN friendships f1 ON u.user_id = f1.friend_id AND f1.user_id = ? " +
                 "JOIN friendships f2 ON u.user_id = f2.friend_id AND f2.user_id = ?";
@@ -134,15 +208,162 @@ public class UserDbStorageImpl implements UserStorage {
         return jdbcTemplate.query(sql, this::mapRowToUser, userId, otherId);
     }
 
+    @Override
+    public Set<Long> getFriendIds(Long userId) {
+        if (friendGraph.isReady()) {
+            return toSet(friendGraph.friends(userId));
+        }
+
+        String sql = "SELECT friend_id FROM friendships WHERE user_id = ? ORDER BY friend_id";
+        return new LinkedHashSet<>(jdbcTemplate.queryForList(sql, Long.class, userId));
+    }
+
+    @Override
+    public Map<Long, Set<Long>> getFriendIds(Collection<Long> userIds) {
+        Map<Long, Set<Long>> result = new HashMap<>();
+        if (friendGraph.isReady()) {
+            for (Long userId : userIds) {
+                result.put(userId, toSet(friendGraph.friends(userId)));
+            }
+            return result;
+        }
+
+        for (Long userId : userIds) {
+            result.put(userId, new LinkedHashSet<>());
+        }
+        if (!userIds.isEmpty()) {
+            String sql = "SELECT user_id, friend_id FROM friendships WHERE user_id = ANY(?) ORDER BY user_id, friend_id";
+            jdbcTemplate.query(sql, ps -> {
+                ps.setArray(1, ps.getConnection().createArrayOf("BIGINT", userIds.toArray()));
+            }, rs -> {
+                result.get(rs.getLong("user_id")).add(rs.getLong("friend_id"));
+            });
+        }
+        return result;
+    }
+
+    @Override
+    public List<Long> getFriendSuggestionIds(Long userId, int limit) {
+        if (friendGraph.isReady()) {
+            return toList(friendGraph.suggestions(userId, limit));
+        }
+
+        // Без графа загружаем только просматриваемую часть окрестности двумя запросами
+        long[] friends = toArray(getFriendIds(userId));
+        List<Long> scanned = toList(Arrays.copyOf(friends, Math.min(friends.length, friendGraph.getMaxScannedFriends())));
+        Map<Long, Set<Long>> friendsOfFriends = getFriendIds(scanned);
+        return toList(friendGraph.suggestions(userId, friends, limit,
+                id -> toArray(friendsOfFriends.getOrDefault(id, Set.of()))));
+    }
+
+    @Override
+    public int getFriendCount(Long userId) {
+        if (friendGraph.isReady()) {
+            return friendGraph.friendCount(userId);
+        }
+
+        String sql = "SELECT COUNT(*) FROM friendships WHERE user_id = ?";
+        Integer count = jdbcTemplate.queryForObject(sql, Integer.class, userId);
+        return count != null ? count : 0;
+    }
+
     @Override
     public boolean existsById(Long id) {
+        if (id == null) {
+            return false;
+        }
+        if (userIds.contains(id)) {
+            return true;
+        }
+
         String sql = "SELECT COUNT(*) FROM users WHERE user_id = ?";
         Integer count = jdbcTemplate.queryForObject(sql, Integer.class, id);
-        return count != null && count > 0;
+        boolean exists = count != null && count > 0;
+        if (exists) {
+            // Строка может быть ещё не закоммичена текущей транзакцией и пропасть при откате
+            TransactionHooks.afterCommit(() -> userIds.add(id));
+        }
+        return exists;
+    }
+
+    @Override
+    public Set<Long> findExistingIds(Collection<Long> ids) {
+        Set<Long> existing = new HashSet<>();
+        List<Long> unknown = new ArrayList<>();
+        for (Long id : ids) {
+            if (userIds.contains(id)) {
+                existing.add(id);
+            } else {
+                unknown.add(id);
+            }
+        }
+
+        if (!unknown.isEmpty()) {
+            String sql = "SELECT user_id FROM users WHERE user_id = ANY(?)";
+            List<Long> found = new ArrayList<>();
+            jdbcTemplate.query(sql, ps -> {
+                ps.setArray(1, ps.getConnection().createArrayOf("BIGINT", unknown.toArray()));
+            }, rs -> {
+                found.add(rs.getLong("user_id"));
+            });
+            existing.addAll(found);
+            TransactionHooks.afterCommit(() -> found.forEach(userIds::add));
+        }
+
+        return existing;
     }
 
     @Override
     public void deleteUser(Long id) {
+        String sql = "DELETE FROM users WHERE user_id = ?";
+
+        int deleted = jdbcTemplate.update(sql, id);
+        if (deleted == 0) {
+            throw new NotFoundException("Пользователь с ID " + id + " не найден");
+        }
+
+        // Сразу — чтобы не подтверждать удаляемую строку, и после коммита — на случай,
+        // если параллельная проверка успела вернуть её в набор до коммита
+        userIds.remove(id);
+        TransactionHooks.afterCommit(() -> userIds.remove(id));
+        friendGraph.removeUser(id);
+        likeIndex.removeUser(id);
+        autocompleteIndex.removeUser(id);
+        // Профиль из кэша иначе подтверждал бы существование удалённого пользователя до истечения TTL
+        userCache.invalidateAfterTransaction(id);
+        log.info("Пользователь с ID {} удален", id);
+    }
+
+    @Override
+    public List<Suggestion> suggestLogins(String prefix, int limit) {
+        if (autocompleteIndex.isReady()) {
+            return autocompleteIndex.suggestUsers(prefix, limit);
+        }
+
+        String sql = "SELECT user_id, login FROM users WHERE LOWER(login) LIKE ? ESCAPE '\\' " +
+                "ORDER BY LOWER(login), user_id LIMIT ?";
+        return jdbcTemplate.query(sql, (rs, rowNum) -> new Suggestion(rs.getLong("user_id"), rs.getString("login")),
+                SqlPatterns.likePrefix(prefix), limit);
+    }
+
+    private static List<Long> toList(long[] ids) {
+        List<Long> result = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            result.add(id);
+        }
+        return result;
+    }
+
+    private static long[] toArray(Set<Long> ids) {
+        return ids.stream().mapToLong(Long::longValue).sorted().toArray();
+    }
+
+    private static Set<Long> toSet(long[] ids) {
+        Set<Long> result = new LinkedHashSet<>();
+        for (long id : ids) {
+            result.add(id);
+        }
+        return result;
     }
 
     private User mapRowToUser(ResultSet rs, int rowNum) throws SQLException {
@@ -0,0 +1,134 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Suggestion;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Подсказки при вводе по названиям фильмов и логинам пользователей.
+ */
+@Slf4j
+@Component
+public class AutocompleteIndex {
+    private final JdbcTemplate jdbcTemplate;
+    private final ReentrantLock reloadLock = new ReentrantLock();
+    private final ReentrantReadWriteLock swapLock = new ReentrantReadWriteLock();
+    private final Queue<Change> changesDuringReload = new ConcurrentLinkedQueue<>();
+
+    private volatile PrefixSuggester filmTitles = new PrefixSuggester();
+    private volatile PrefixSuggester userLogins = new PrefixSuggester();
+    private volatile boolean reloading;
+    private volatile boolean ready;
+
+    public AutocompleteIndex(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void warmUp() {
+        try {
+            reload();
+            log.info("Индекс подсказок загружен: фильмов {}, пользователей {}", filmTitles.size(), userLogins.size());
+        } catch (DataAccessException e) {
+            log.warn("Не удалось загрузить индекс подсказок, используются запросы к БД: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(
+            initialDelayString = "${filmorate.autocomplete.reload-interval-ms:3600000}",
+            fixedDelayString = "${filmorate.autocomplete.reload-interval-ms:3600000}")
+    public void scheduledReload() {
+        try {
+            reload();
+            log.debug("Индекс подсказок перезагружен из БД");
+        } catch (DataAccessException e) {
+            log.error("Ошибка перезагрузки индекса подсказок", e);
+        }
+    }
+
+    public void reload() {
+        reloadLock.lock();
+        try {
+            changesDuringReload.clear();
+            reloading = true;
+            PrefixSuggester loadedFilms = new PrefixSuggester();
+            PrefixSuggester loadedUsers = new PrefixSuggester();
+            jdbcTemplate.query("SELECT film_id, name FROM films", rs -> {
+                loadedFilms.put(rs.getLong("film_id"), rs.getString("name"));
+            });
+            jdbcTemplate.query("SELECT user_id, login FROM users", rs -> {
+                loadedUsers.put(rs.getLong("user_id"), rs.getString("login"));
+            });
+
+            swapLock.writeLock().lock();
+            try {
+                reloading = false;
+                for (Change change : changesDuringReload) {
+                    (change.film() ? loadedFilms : loadedUsers).put(change.id(), change.value());
+                }
+                changesDuringReload.clear();
+                filmTitles = loadedFilms;
+                userLogins = loadedUsers;
+                ready = true;
+            } finally {
+                swapLock.writeLock().unlock();
+            }
+        } finally {
+            reloading = false;
+            reloadLock.unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public List<Suggestion> suggestFilms(String prefix, int limit) {
+        return filmTitles.suggest(prefix, limit);
+    }
+
+    public List<Suggestion> suggestUsers(String prefix, int limit) {
+        return userLogins.suggest(prefix, limit);
+    }
+
+    public void putFilm(long filmId, String name) {
+        TransactionHooks.afterCommit(() -> update(new Change(true, filmId, name)));
+    }
+
+    public void removeFilm(long filmId) {
+        TransactionHooks.afterCommit(() -> update(new Change(true, filmId, null)));
+    }
+
+    public void putUser(long userId, String login) {
+        TransactionHooks.afterCommit(() -> update(new Change(false, userId, login)));
+    }
+
+    public void removeUser(long userId) {
+        TransactionHooks.afterCommit(() -> update(new Change(false, userId, null)));
+    }
+
+    private void update(Change change) {
+        swapLock.readLock().lock();
+        try {
+            if (reloading) {
+                changesDuringReload.add(change);
+            }
+            (change.film() ? filmTitles : userLogins).put(change.id(), change.value());
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    private record Change(boolean film, long id, String value) {
+    }
+}
@@ -0,0 +1,283 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.SearchField;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Инвертированный индекс по названию и описанию фильмов. Термы хранятся в отсортированной карте,
+ * поэтому поиск по префиксу — это чтение диапазона ключей, а не перебор словаря.
+ * Все слова запроса должны найтись; фильмы ранжируются по релевантности, затем по числу лайков.
+ */
+@Slf4j
+@Component
+public class FilmSearchIndex {
+    private static final int TITLE_WEIGHT = 3;
+    private static final int DESCRIPTION_WEIGHT = 1;
+    private static final int MIN_PREFIX_LENGTH = 2;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PopularityLeaderboard popularityLeaderboard;
+    private final int maxPrefixTerms;
+    private final ReentrantLock reloadLock = new ReentrantLock();
+    private final ReentrantReadWriteLock swapLock = new ReentrantReadWriteLock();
+    private final Queue<Change> changesDuringReload = new ConcurrentLinkedQueue<>();
+
+    private volatile Snapshot snapshot = new Snapshot();
+    private volatile boolean reloading;
+    private volatile boolean ready;
+
+    public FilmSearchIndex(
+            JdbcTemplate jdbcTemplate,
+            PopularityLeaderboard popularityLeaderboard,
+            @Value("${filmorate.search.max-prefix-terms:1000}") int maxPrefixTerms) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.popularityLeaderboard = popularityLeaderboard;
+        this.maxPrefixTerms = maxPrefixTerms;
+    }
+
+    @PostConstruct
+    public void warmUp() {
+        try {
+            reload();
+            log.info("Поисковый индекс загружен: фильмов {}", snapshot.documents.size());
+        } catch (DataAccessException e) {
+            log.warn("Не удалось загрузить поисковый индекс, поиск выполняется в БД: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(
+            initialDelayString = "${filmorate.search.reload-interval-ms:3600000}",
+            fixedDelayString = "${filmorate.search.reload-interval-ms:3600000}")
+    public void scheduledReload() {
+        try {
+            reload();
+            log.debug("Поисковый индекс перезагружен из БД");
+        } catch (DataAccessException e) {
+            log.error("Ошибка перезагрузки поискового индекса", e);
+        }
+    }
+
+    /**
+     * Перестраивает индекс по таблице films. Изменения, пришедшие во время чтения, накладываются
+     * на новый индекс перед подменой.
+     */
+    public void reload() {
+        reloadLock.lock();
+        try {
+            changesDuringReload.clear();
+            reloading = true;
+            Snapshot loaded = new Snapshot();
+            jdbcTemplate.query("SELECT film_id, name, description FROM films", rs -> {
+                loaded.apply(rs.getLong("film_id"), Document.of(rs.getString("name"), rs.getString("description")));
+            });
+
+            swapLock.writeLock().lock();
+            try {
+                reloading = false;
+                for (Change change : changesDuringReload) {
+                    loaded.apply(change.filmId(), change.document());
+                }
+                changesDuringReload.clear();
+                snapshot = loaded;
+                ready = true;
+            } finally {
+                swapLock.writeLock().unlock();
+            }
+        } finally {
+            reloading = false;
+            reloadLock.unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public void indexFilm(long filmId, String name, String description) {
+        Document document = Document.of(name, description);
+        TransactionHooks.afterCommit(() -> update(filmId, document));
+    }
+
+    public void removeFilm(long filmId) {
+        TransactionHooks.afterCommit(() -> update(filmId, null));
+    }
+
+    public List<Long> search(String query, Set<SearchField> fields, int limit) {
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty() || fields.isEmpty()) {
+            return List.of();
+        }
+
+        Snapshot current = snapshot;
+        Map<Long, Integer> scores = null;
+        for (String token : tokens) {
+            Map<Long, Integer> tokenScores = current.match(token, fields, maxPrefixTerms);
+            if (scores == null) {
+                scores = tokenScores;
+            } else {
+                scores.keySet().retainAll(tokenScores.keySet());
+                scores.replaceAll((filmId, score) -> score + tokenScores.get(filmId));
+            }
+            if (scores.isEmpty()) {
+                return List.of();
+            }
+        }
+
+        return top(scores, limit);
+    }
+
+    /**
+     * Разбивает текст на слова из букв и цифр в нижнем регистре; «ё» приводится к «е».
+     * Повторы отбрасываются, порядок первого вхождения сохраняется.
+     */
+    public static List<String> tokenize(String text) {
+        if (text == null) {
+            return List.of();
+        }
+
+        Set<String> tokens = new LinkedHashSet<>();
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                token.append(TextFolding.fold(c));
+            } else if (!token.isEmpty()) {
+                tokens.add(token.toString());
+                token.setLength(0);
+            }
+        }
+        if (!token.isEmpty()) {
+            tokens.add(token.toString());
+        }
+        return new ArrayList<>(tokens);
+    }
+
+    private List<Long> top(Map<Long, Integer> scores, int limit) {
+        Comparator<Map.Entry<Long, Integer>> ranking = Comparator
+                .<Map.Entry<Long, Integer>>comparingInt(Map.Entry::getValue)
+                .thenComparingLong(entry -> popularityLeaderboard.getLikes(entry.getKey()))
+                .thenComparing(Map.Entry::getKey, Comparator.reverseOrder());
+
+        PriorityQueue<Map.Entry<Long, Integer>> heap = new PriorityQueue<>(limit + 1, ranking);
+        for (Map.Entry<Long, Integer> entry : scores.entrySet()) {
+            heap.offer(entry);
+            if (heap.size() > limit) {
+                heap.poll();
+            }
+        }
+
+        Long[] result = new Long[heap.size()];
+        for (int i = result.length - 1; i >= 0; i--) {
+            result[i] = heap.poll().getKey();
+        }
+        return List.of(result);
+    }
+
+    private void update(long filmId, Document document) {
+        swapLock.readLock().lock();
+        try {
+            if (reloading) {
+                changesDuringReload.add(new Change(filmId, document));
+            }
+            snapshot.apply(filmId, document);
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    private static class Snapshot {
+        private final Map<Long, Document> documents = new ConcurrentHashMap<>();
+        private final Map<SearchField, ConcurrentSkipListMap<String, long[]>> postings = new EnumMap<>(SearchField.class);
+
+        Snapshot() {
+            for (SearchField field : SearchField.values()) {
+                postings.put(field, new ConcurrentSkipListMap<>());
+            }
+        }
+
+        void apply(long filmId, Document document) {
+            documents.compute(filmId, (id, previous) -> {
+                for (SearchField field : SearchField.values()) {
+                    ConcurrentSkipListMap<String, long[]> terms = postings.get(field);
+                    if (previous != null) {
+                        for (String term : previous.terms(field)) {
+                            terms.compute(term, (t, ids) -> SortedLongArrays.remove(ids, id));
+                        }
+                    }
+                    if (document != null) {
+                        for (String term : document.terms(field)) {
+                            terms.compute(term, (t, ids) -> SortedLongArrays.add(ids, id));
+                        }
+                    }
+                }
+                return document;
+            });
+        }
+
+        /**
+         * Баллы фильмов по одному слову запроса: точное совпадение весит вдвое больше префиксного,
+         * название — больше описания. Короткие слова ищутся только точно, а число развёрнутых
+         * префиксов ограничено, чтобы запрос из одной-двух букв не обходил весь словарь.
+         */
+        Map<Long, Integer> match(String token, Set<SearchField> fields, int maxPrefixTerms) {
+            Map<Long, Integer> result = new HashMap<>();
+            for (SearchField field : fields) {
+                int weight = field == SearchField.TITLE ? TITLE_WEIGHT : DESCRIPTION_WEIGHT;
+                ConcurrentSkipListMap<String, long[]> terms = postings.get(field);
+                NavigableMap<String, long[]> matched = token.length() < MIN_PREFIX_LENGTH
+                        ? terms.subMap(token, true, token, true)
+                        : terms.subMap(token, true, token + Character.MAX_VALUE, false);
+
+                Map<Long, Integer> fieldScores = new HashMap<>();
+                int expanded = 0;
+                for (Map.Entry<String, long[]> entry : matched.entrySet()) {
+                    if (++expanded > maxPrefixTerms) {
+                        break;
+                    }
+                    int score = entry.getKey().length() == token.length() ? weight * 2 : weight;
+                    for (long filmId : entry.getValue()) {
+                        fieldScores.merge(filmId, score, Math::max);
+                    }
+                }
+                fieldScores.forEach((filmId, score) -> result.merge(filmId, score, Integer::sum));
+            }
+            return result;
+        }
+    }
+
+    private record Document(List<String> titleTerms, List<String> descriptionTerms) {
+        static Document of(String name, String description) {
+            return new Document(tokenize(name), tokenize(description));
+        }
+
+        List<String> terms(SearchField field) {
+            return field == SearchField.TITLE ? titleTerms : descriptionTerms;
+        }
+    }
+
+    private record Change(long filmId, Document document) {
+    }
+}
@@ -0,0 +1,322 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongFunction;
+
+/**
+ * Граф дружбы в памяти. Базовый снимок хранится в формате CSR: отсортированный массив
+ * пользователей, смещения и общий массив ID друзей, отсортированных внутри каждого пользователя.
+ * Изменения после загрузки копятся в оверлее — отдельном отсортированном {@code long[]} на пользователя.
+ */
+@Slf4j
+@Component
+public class FriendGraph {
+    private static final long[] EMPTY = new long[0];
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int maxScannedFriends;
+    private final int maxScannedFriendsOfFriend;
+    private final ReentrantLock reloadLock = new ReentrantLock();
+    private final ReentrantReadWriteLock swapLock = new ReentrantReadWriteLock();
+    private final Map<Long, long[]> overlay = new ConcurrentHashMap<>();
+    private final Queue<Change> changesDuringReload = new ConcurrentLinkedQueue<>();
+
+    private volatile Snapshot snapshot = new Snapshot(EMPTY, new int[]{0}, EMPTY);
+    private volatile boolean ready;
+    private volatile boolean reloading;
+
+    public FriendGraph(
+            JdbcTemplate jdbcTemplate,
+            @Value("${filmorate.friend-suggestions.max-friends:500}") int maxScannedFriends,
+            @Value("${filmorate.friend-suggestions.max-friends-of-friend:500}") int maxScannedFriendsOfFriend) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.maxScannedFriends = maxScannedFriends;
+        this.maxScannedFriendsOfFriend = maxScannedFriendsOfFriend;
+    }
+
+    @PostConstruct
+    public void warmUp() {
+        try {
+            reload();
+            log.info("Граф дружбы загружен: пользователей {}, связей {}",
+                    snapshot.users().length, snapshot.friends().length);
+        } catch (DataAccessException e) {
+            log.warn("Не удалось загрузить граф дружбы, используются запросы к БД: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(
+            initialDelayString = "${filmorate.friend-graph.reload-interval-ms:3600000}",
+            fixedDelayString = "${filmorate.friend-graph.reload-interval-ms:3600000}")
+    public void scheduledReload() {
+        try {
+            reload();
+            log.debug("Граф дружбы перезагружен из БД");
+        } catch (DataAccessException e) {
+            log.error("Ошибка перезагрузки графа дружбы", e);
+        }
+    }
+
+    /**
+     * Перечитывает таблицу friendships. Изменения, пришедшие во время чтения, заново применяются
+     * к новому снимку: оверлей, построенный на старом снимке, потерял бы загруженные связи.
+     * Начало и конец перезагрузки берут ту же блокировку, что и update, поэтому каждое изменение
+     * либо целиком до начала чтения, либо записано в changesDuringReload.
+     */
+    public void reload() {
+        reloadLock.lock();
+        try {
+            swapLock.writeLock().lock();
+            try {
+                changesDuringReload.clear();
+                reloading = true;
+            } finally {
+                swapLock.writeLock().unlock();
+            }
+
+            Snapshot loaded = null;
+            try {
+                loaded = load();
+            } finally {
+                swapLock.writeLock().lock();
+                try {
+                    if (loaded != null) {
+                        swap(loaded);
+                    }
+                    reloading = false;
+                    changesDuringReload.clear();
+                } finally {
+                    swapLock.writeLock().unlock();
+                }
+            }
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Возвращает отсортированные ID друзей. Для пользователя без изменений после загрузки это копия
+     * из снимка, иначе — общий массив оверлея, поэтому результат нельзя изменять.
+     */
+    public long[] friends(long userId) {
+        return friends(userId, Integer.MAX_VALUE);
+    }
+
+    public int getMaxScannedFriends() {
+        return maxScannedFriends;
+    }
+
+    public int friendCount(long userId) {
+        long[] friends = overlay.get(userId);
+        return friends != null ? friends.length : snapshot.friendCount(userId);
+    }
+
+    public boolean areFriends(long userId, long friendId) {
+        long[] friends = overlay.get(userId);
+        return friends != null ? Arrays.binarySearch(friends, friendId) >= 0 : snapshot.contains(userId, friendId);
+    }
+
+    /**
+     * Общие друзья двух пользователей — пересечение отсортированных списков слиянием.
+     */
+    public long[] commonFriends(long userId, long otherId) {
+        long[] left = friends(userId);
+        long[] right = friends(otherId);
+        long[] result = new long[Math.min(left.length, right.length)];
+
+        int i = 0;
+        int j = 0;
+        int size = 0;
+        while (i < left.length && j < right.length) {
+            if (left[i] < right[j]) {
+                i++;
+            } else if (left[i] > right[j]) {
+                j++;
+            } else {
+                result[size++] = left[i];
+                i++;
+                j++;
+            }
+        }
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+
+    public long[] suggestions(long userId, int limit) {
+        return suggestions(userId, friends(userId), limit, id -> friends(id, maxScannedFriendsOfFriend));
+    }
+
+    /**
+     * Кандидаты в друзья, упорядоченные по числу общих друзей, при равенстве — по ID.
+     * {@code friends} — полный отсортированный список друзей пользователя.
+     * Работа на запрос ограничена: просматривается не больше {@code max-friends} друзей пользователя
+     * и не больше {@code max-friends-of-friend} друзей у каждого из них, а лучшие отбираются кучей.
+     */
+    public long[] suggestions(long userId, long[] friends, int limit, LongFunction<long[]> friendsOf) {
+        int scanned = Math.min(friends.length, maxScannedFriends);
+        LongCounter mutualFriends = new LongCounter(scanned * 16);
+
+        for (int i = 0; i < scanned; i++) {
+            long[] candidates = friendsOf.apply(friends[i]);
+            int candidateCount = Math.min(candidates.length, maxScannedFriendsOfFriend);
+            for (int j = 0; j < candidateCount; j++) {
+                mutualFriends.add(candidates[j], 1);
+            }
+        }
+
+        return mutualFriends.top(limit, candidate ->
+                candidate != userId && Arrays.binarySearch(friends, candidate) < 0);
+    }
+
+    public void addFriend(long userId, long friendId) {
+        TransactionHooks.afterCommit(() -> update(userId, friendId, true));
+    }
+
+    public void removeFriend(long userId, long friendId) {
+        TransactionHooks.afterCommit(() -> update(userId, friendId, false));
+    }
+
+    public void removeUser(long userId) {
+        // Удалённый пользователь пропадает из списков друзей всех остальных, обратного индекса нет — перечитываем граф
+        TransactionHooks.afterCommit(this::reload);
+    }
+
+    private void update(long userId, long friendId, boolean add) {
+        swapLock.readLock().lock();
+        try {
+            overlay.compute(userId, (id, current) -> {
+                if (reloading) {
+                    // Внутри compute порядок изменений одного пользователя совпадает с порядком в очереди
+                    changesDuringReload.add(new Change(userId, friendId, add));
+                }
+                return apply(current != null ? current : snapshot.friendsOf(id, Integer.MAX_VALUE), friendId, add);
+            });
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    private void swap(Snapshot loaded) {
+        // Новый снимок может уже содержать часть этих изменений, а добавление и удаление идемпотентны
+        overlay.clear();
+        for (Change change : changesDuringReload) {
+            overlay.compute(change.userId(), (id, current) -> apply(
+                    current != null ? current : loaded.friendsOf(id, Integer.MAX_VALUE), change.friendId(), change.add()));
+        }
+        snapshot = loaded;
+        ready = true;
+    }
+
+    private long[] friends(long userId, int max) {
+        long[] friends = overlay.get(userId);
+        return friends != null ? friends : snapshot.friendsOf(userId, max);
+    }
+
+    private Snapshot load() {
+        String sql = "SELECT user_id, friend_id FROM friendships ORDER BY user_id, friend_id";
+        Builder builder = new Builder();
+        jdbcTemplate.query(sql, rs -> {
+            builder.add(rs.getLong("user_id"), rs.getLong("friend_id"));
+        });
+        return builder.build();
+    }
+
+    private static long[] apply(long[] friends, long friendId, boolean add) {
+        int index = Arrays.binarySearch(friends, friendId);
+        if (add) {
+            return index >= 0 ? friends : insert(friends, -index - 1, friendId);
+        }
+        return index < 0 ? friends : delete(friends, index);
+    }
+
+    private static long[] insert(long[] array, int index, long value) {
+        long[] result = new long[array.length + 1];
+        System.arraycopy(array, 0, result, 0, index);
+        result[index] = value;
+        System.arraycopy(array, index, result, index + 1, array.length - index);
+        return result;
+    }
+
+    private static long[] delete(long[] array, int index) {
+        long[] result = new long[array.length - 1];
+        System.arraycopy(array, 0, result, 0, index);
+        System.arraycopy(array, index + 1, result, index, array.length - index - 1);
+        return result;
+    }
+
+    private record Change(long userId, long friendId, boolean add) {
+    }
+
+    private record Snapshot(long[] users, int[] offsets, long[] friends) {
+        /**
+         * Копия не больше {@code max} первых друзей пользователя: общий массив снимка наружу не отдаётся.
+         */
+        long[] friendsOf(long userId, int max) {
+            int index = Arrays.binarySearch(users, userId);
+            if (index < 0) {
+                return EMPTY;
+            }
+            int from = offsets[index];
+            int to = (int) Math.min(offsets[index + 1], (long) from + max);
+            return Arrays.copyOfRange(friends, from, to);
+        }
+
+        int friendCount(long userId) {
+            int index = Arrays.binarySearch(users, userId);
+            return index < 0 ? 0 : offsets[index + 1] - offsets[index];
+        }
+
+        boolean contains(long userId, long friendId) {
+            int index = Arrays.binarySearch(users, userId);
+            return index >= 0 && Arrays.binarySearch(friends, offsets[index], offsets[index + 1], friendId) >= 0;
+        }
+    }
+
+    private static class Builder {
+        private long[] users = new long[INITIAL_CAPACITY];
+        private int[] offsets = new int[INITIAL_CAPACITY + 1];
+        private long[] friends = new long[INITIAL_CAPACITY];
+        private int userCount;
+        private int edgeCount;
+
+        void add(long userId, long friendId) {
+            if (userCount == 0 || users[userCount - 1] != userId) {
+                if (userCount == users.length) {
+                    users = Arrays.copyOf(users, users.length * 2);
+                    offsets = Arrays.copyOf(offsets, users.length + 1);
+                }
+                users[userCount] = userId;
+                offsets[userCount] = edgeCount;
+                userCount++;
+            }
+            if (edgeCount == friends.length) {
+                friends = Arrays.copyOf(friends, friends.length * 2);
+            }
+            friends[edgeCount++] = friendId;
+        }
+
+        Snapshot build() {
+            int[] finalOffsets = Arrays.copyOf(offsets, userCount + 1);
+            finalOffsets[userCount] = edgeCount;
+            return new Snapshot(Arrays.copyOf(users, userCount), finalOffsets, Arrays.copyOf(friends, edgeCount));
+        }
+    }
+}
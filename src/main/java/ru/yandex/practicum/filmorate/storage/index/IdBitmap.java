@@ -0,0 +1,60 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Компактное множество неотрицательных ID: старшие биты выбирают контейнер,
+ * младшие 16 бит — позицию в его битовой карте (по аналогии с Roaring Bitmap).
+ */
+public class IdBitmap {
+    private static final int CONTAINER_BITS = 16;
+    private static final int WORDS_PER_CONTAINER = (1 << CONTAINER_BITS) / Long.SIZE;
+    private static final long LOW_MASK = (1L << CONTAINER_BITS) - 1;
+
+    private final Map<Long, AtomicLongArray> containers = new ConcurrentHashMap<>();
+
+    public void add(long id) {
+        checkId(id);
+        AtomicLongArray container = containers.computeIfAbsent(id >>> CONTAINER_BITS,
+                key -> new AtomicLongArray(WORDS_PER_CONTAINER));
+        long bit = bit(id);
+        container.accumulateAndGet(word(id), bit, (current, mask) -> current | mask);
+    }
+
+    public void remove(long id) {
+        checkId(id);
+        AtomicLongArray container = containers.get(id >>> CONTAINER_BITS);
+        if (container != null) {
+            long bit = bit(id);
+            container.accumulateAndGet(word(id), ~bit, (current, mask) -> current & mask);
+        }
+    }
+
+    public boolean contains(long id) {
+        if (id < 0) {
+            return false;
+        }
+        AtomicLongArray container = containers.get(id >>> CONTAINER_BITS);
+        return container != null && (container.get(word(id)) & bit(id)) != 0;
+    }
+
+    public void clear() {
+        containers.clear();
+    }
+
+    private static int word(long id) {
+        return (int) ((id & LOW_MASK) >>> 6);
+    }
+
+    private static long bit(long id) {
+        return 1L << (id & 63);
+    }
+
+    private static void checkId(long id) {
+        if (id < 0) {
+            throw new IllegalArgumentException("ID не может быть отрицательным: " + id);
+        }
+    }
+}
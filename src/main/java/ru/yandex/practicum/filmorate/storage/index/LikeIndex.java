@@ -0,0 +1,258 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.LikeWriteBehindBuffer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Индекс лайков в памяти в обе стороны: пользователь → фильмы и фильм → пользователи.
+ * Множества хранятся отсортированными {@code long[]} и заменяются целиком при изменении,
+ * поэтому читатели работают без блокировок.
+ */
+@Slf4j
+@Component
+public class LikeIndex {
+    private static final long[] EMPTY = new long[0];
+
+    private final JdbcTemplate jdbcTemplate;
+    private final LikeWriteBehindBuffer likeBuffer;
+    private final int maxScannedFilms;
+    private final int maxScannedUsersPerFilm;
+    private final int maxNeighbours;
+    private final ReentrantLock reloadLock = new ReentrantLock();
+    private final ReentrantReadWriteLock swapLock = new ReentrantReadWriteLock();
+    private final Queue<Change> changesDuringReload = new ConcurrentLinkedQueue<>();
+
+    private volatile Map<Long, long[]> filmsByUser = new ConcurrentHashMap<>();
+    private volatile Map<Long, long[]> usersByFilm = new ConcurrentHashMap<>();
+    private volatile boolean reloading;
+    private volatile boolean ready;
+
+    public LikeIndex(
+            JdbcTemplate jdbcTemplate,
+            LikeWriteBehindBuffer likeBuffer,
+            @Value("${filmorate.recommendations.max-films:500}") int maxScannedFilms,
+            @Value("${filmorate.recommendations.max-users-per-film:1000}") int maxScannedUsersPerFilm,
+            @Value("${filmorate.recommendations.max-neighbours:50}") int maxNeighbours) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.likeBuffer = likeBuffer;
+        this.maxScannedFilms = maxScannedFilms;
+        this.maxScannedUsersPerFilm = maxScannedUsersPerFilm;
+        this.maxNeighbours = maxNeighbours;
+    }
+
+    @PostConstruct
+    public void warmUp() {
+        try {
+            reload();
+            log.info("Индекс лайков загружен: пользователей {}, фильмов {}", filmsByUser.size(), usersByFilm.size());
+        } catch (DataAccessException e) {
+            log.warn("Не удалось загрузить индекс лайков, рекомендации считаются в БД: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(
+            initialDelayString = "${filmorate.recommendations.reload-interval-ms:3600000}",
+            fixedDelayString = "${filmorate.recommendations.reload-interval-ms:3600000}")
+    public void scheduledReload() {
+        try {
+            reload();
+            log.debug("Индекс лайков перезагружен из БД");
+        } catch (DataAccessException e) {
+            log.error("Ошибка перезагрузки индекса лайков", e);
+        }
+    }
+
+    /**
+     * Перечитывает таблицу likes. Несброшенные лайки отложенной записи снимаются вместе с чтением,
+     * пока сбросы задержаны, поэтому каждый из них попадает либо в прочитанное, либо в снятое.
+     * Изменения, пришедшие во время чтения, накладываются поверх перед подменой.
+     */
+    public void reload() {
+        reloadLock.lock();
+        try {
+            changesDuringReload.clear();
+            reloading = true;
+            List<Change> pendingLikes = new ArrayList<>();
+            List<Map<Long, long[]>> loaded = new ArrayList<>(2);
+            likeBuffer.readConsistently(() -> {
+                loaded.add(load("SELECT user_id, film_id FROM likes ORDER BY user_id, film_id"));
+                loaded.add(load("SELECT film_id, user_id FROM likes ORDER BY film_id, user_id"));
+            }, (filmId, userId, add) -> pendingLikes.add(new Change(filmId, userId, add)));
+            Map<Long, long[]> loadedFilmsByUser = loaded.get(0);
+            Map<Long, long[]> loadedUsersByFilm = loaded.get(1);
+
+            swapLock.writeLock().lock();
+            try {
+                reloading = false;
+                // Снятые несброшенные лайки старше изменений, пришедших во время перезагрузки
+                for (Change change : pendingLikes) {
+                    apply(loadedFilmsByUser, loadedUsersByFilm, change.filmId(), change.userId(), change.add());
+                }
+                for (Change change : changesDuringReload) {
+                    apply(loadedFilmsByUser, loadedUsersByFilm, change.filmId(), change.userId(), change.add());
+                }
+                changesDuringReload.clear();
+
+                filmsByUser = loadedFilmsByUser;
+                usersByFilm = loadedUsersByFilm;
+                ready = true;
+            } finally {
+                swapLock.writeLock().unlock();
+            }
+        } finally {
+            reloading = false;
+            reloadLock.unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int getMaxNeighbours() {
+        return maxNeighbours;
+    }
+
+    public long[] filmsLikedBy(long userId) {
+        return filmsByUser.getOrDefault(userId, EMPTY);
+    }
+
+    public long[] usersWhoLiked(long filmId) {
+        return usersByFilm.getOrDefault(filmId, EMPTY);
+    }
+
+    public void addLike(long filmId, long userId) {
+        TransactionHooks.afterCommit(() -> update(filmId, userId, true));
+    }
+
+    public void removeLike(long filmId, long userId) {
+        TransactionHooks.afterCommit(() -> update(filmId, userId, false));
+    }
+
+    public void removeFilm(long filmId) {
+        TransactionHooks.afterCommit(() -> {
+            for (long userId : usersWhoLiked(filmId)) {
+                update(filmId, userId, false);
+            }
+        });
+    }
+
+    public void removeUser(long userId) {
+        TransactionHooks.afterCommit(() -> {
+            for (long filmId : filmsLikedBy(userId)) {
+                update(filmId, userId, false);
+            }
+        });
+    }
+
+    /**
+     * Рекомендации по схеме «пользователи с похожими вкусами»: соседи ранжируются по числу
+     * общих лайков, а фильмы соседей, которые пользователь ещё не лайкал, — по сумме этих чисел.
+     * Объём работы ограничен: не больше {@code max-films} своих фильмов, {@code max-users-per-film}
+     * лайкнувших каждый из них и {@code max-neighbours} соседей.
+     */
+    public long[] recommend(long userId, int limit) {
+        long[] ownFilms = filmsLikedBy(userId);
+        if (ownFilms.length == 0) {
+            return EMPTY;
+        }
+
+        int scannedFilms = Math.min(ownFilms.length, maxScannedFilms);
+        LongCounter overlap = new LongCounter(scannedFilms * 8);
+        for (int i = 0; i < scannedFilms; i++) {
+            long[] users = usersWhoLiked(ownFilms[i]);
+            int scannedUsers = Math.min(users.length, maxScannedUsersPerFilm);
+            for (int j = 0; j < scannedUsers; j++) {
+                overlap.add(users[j], 1);
+            }
+        }
+
+        long[] neighbours = overlap.top(maxNeighbours, neighbour -> neighbour != userId);
+        LongCounter scores = new LongCounter(neighbours.length * 16);
+        for (long neighbour : neighbours) {
+            long weight = overlap.get(neighbour);
+            for (long filmId : filmsLikedBy(neighbour)) {
+                scores.add(filmId, weight);
+            }
+        }
+
+        return scores.top(limit, filmId -> Arrays.binarySearch(ownFilms, filmId) < 0);
+    }
+
+    private void update(long filmId, long userId, boolean add) {
+        swapLock.readLock().lock();
+        try {
+            if (reloading) {
+                changesDuringReload.add(new Change(filmId, userId, add));
+            }
+            apply(filmsByUser, usersByFilm, filmId, userId, add);
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    private static void apply(Map<Long, long[]> filmsByUser, Map<Long, long[]> usersByFilm,
+                              long filmId, long userId, boolean add) {
+        if (add) {
+            filmsByUser.compute(userId, (id, films) -> SortedLongArrays.add(films, filmId));
+            usersByFilm.compute(filmId, (id, users) -> SortedLongArrays.add(users, userId));
+        } else {
+            filmsByUser.compute(userId, (id, films) -> SortedLongArrays.remove(films, filmId));
+            usersByFilm.compute(filmId, (id, users) -> SortedLongArrays.remove(users, userId));
+        }
+    }
+
+    private Map<Long, long[]> load(String sql) {
+        Map<Long, long[]> result = new ConcurrentHashMap<>();
+        Group group = new Group();
+        jdbcTemplate.query(sql, rs -> {
+            long key = rs.getLong(1);
+            if (key != group.key) {
+                group.flushTo(result);
+                group.key = key;
+            }
+            group.add(rs.getLong(2));
+        });
+        group.flushTo(result);
+        return result;
+    }
+
+    private record Change(long filmId, long userId, boolean add) {
+    }
+
+    private static class Group {
+        private long key = -1L;
+        private long[] values = new long[16];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        void flushTo(Map<Long, long[]> target) {
+            if (size > 0) {
+                target.put(key, Arrays.copyOf(values, size));
+            }
+            size = 0;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.function.LongPredicate;
+
+/**
+ * Счётчик по ключам {@code long} на открытой адресации без упаковки в объекты.
+ * Ключи должны быть неотрицательными — так же, как ID в {@link IdBitmap}.
+ */
+public class LongCounter {
+    private static final long FREE = -1L;
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] keys;
+    private long[] values;
+    private int size;
+
+    public LongCounter(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        keys = new long[capacity];
+        values = new long[capacity];
+        Arrays.fill(keys, FREE);
+    }
+
+    public void add(long key, long delta) {
+        if (key < 0) {
+            throw new IllegalArgumentException("Ключ не может быть отрицательным: " + key);
+        }
+
+        int index = indexOf(keys, key);
+        if (keys[index] == FREE) {
+            keys[index] = key;
+            size++;
+        }
+        values[index] += delta;
+
+        if (size > keys.length * LOAD_FACTOR) {
+            grow();
+        }
+    }
+
+    public long get(long key) {
+        int index = indexOf(keys, key);
+        return keys[index] == FREE ? 0 : values[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Возвращает до {@code k} ключей с наибольшими значениями, при равенстве — с меньшим ключом.
+     * Отбор идёт через кучу размера {@code k}, поэтому полная сортировка не нужна.
+     */
+    public long[] top(int k, LongPredicate accept) {
+        if (k <= 0) {
+            return new long[0];
+        }
+
+        PriorityQueue<Integer> heap = new PriorityQueue<>(k + 1, (a, b) -> {
+            int byValue = Long.compare(values[a], values[b]);
+            return byValue != 0 ? byValue : Long.compare(keys[b], keys[a]);
+        });
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] == FREE || !accept.test(keys[i])) {
+                continue;
+            }
+            heap.offer(i);
+            if (heap.size() > k) {
+                heap.poll();
+            }
+        }
+
+        long[] result = new long[heap.size()];
+        for (int i = result.length - 1; i >= 0; i--) {
+            result[i] = keys[heap.poll()];
+        }
+        return result;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new long[oldValues.length * 2];
+        Arrays.fill(keys, FREE);
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE) {
+                int index = indexOf(keys, oldKeys[i]);
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    private static int indexOf(long[] keys, long key) {
+        int mask = keys.length - 1;
+        int index = Long.hashCode(key * 0x9E3779B97F4A7C15L) & mask;
+        while (keys[index] != FREE && keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+}
@@ -0,0 +1,317 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.LikeWriteBehindBuffer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * Рейтинг фильмов по числу лайков. Помимо общего рейтинга ведутся отдельные рейтинги
+ * по каждому жанру и году выхода, поэтому фильтрованный топ читается с начала нужного рейтинга,
+ * а не отбирается из всего каталога.
+ * <p>
+ * Изменения применяются после коммита транзакции. Сверка с БД не трогает фильмы, изменённые
+ * после начала её чтения: их значение в памяти новее прочитанного. Лайк, закоммиченный
+ * до чтения, но применённый после, сверка учтёт дважды — это исправит следующая сверка.
+ */
+@Slf4j
+@Component
+public class PopularityLeaderboard {
+    private static final Comparator<Entry> RANKING_ORDER = Comparator
+            .comparingLong(Entry::likes).reversed()
+            .thenComparingLong(Entry::filmId);
+    private static final NavigableSet<Entry> EMPTY_RANKING = new ConcurrentSkipListSet<>(RANKING_ORDER);
+    private static final long ALWAYS = Long.MAX_VALUE;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final LikeWriteBehindBuffer likeBuffer;
+    private final Map<Long, Long> likesByFilm = new ConcurrentHashMap<>();
+    private final Map<Long, Attributes> attributesByFilm = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<Entry> ranking = new ConcurrentSkipListSet<>(RANKING_ORDER);
+    private final Map<Long, NavigableSet<Entry>> rankingByGenre = new ConcurrentHashMap<>();
+    private final Map<Integer, NavigableSet<Entry>> rankingByYear = new ConcurrentHashMap<>();
+    private final Map<Long, Long> changedAt = new ConcurrentHashMap<>();
+    private final AtomicLong changeSequence = new AtomicLong();
+    private final ReentrantLock reloadLock = new ReentrantLock();
+
+    private volatile boolean ready;
+
+    public PopularityLeaderboard(JdbcTemplate jdbcTemplate, LikeWriteBehindBuffer likeBuffer) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.likeBuffer = likeBuffer;
+    }
+
+    @PostConstruct
+    public void warmUp() {
+        try {
+            int drift = reload();
+            ready = true;
+            log.info("Рейтинг популярности загружен: {} фильмов (расхождений: {})", likesByFilm.size(), drift);
+        } catch (DataAccessException e) {
+            log.warn("Не удалось загрузить рейтинг популярности, используется запрос к БД: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(
+            initialDelayString = "${filmorate.popularity.reconcile-interval-ms:300000}",
+            fixedDelayString = "${filmorate.popularity.reconcile-interval-ms:300000}")
+    public void reconcile() {
+        try {
+            int drift = reload();
+            ready = true;
+            if (drift > 0) {
+                log.warn("Рейтинг популярности сверен с БД, исправлено расхождений: {}", drift);
+            } else {
+                log.debug("Рейтинг популярности сверен с БД, расхождений нет");
+            }
+        } catch (DataAccessException e) {
+            log.error("Ошибка сверки рейтинга популярности", e);
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Регистрирует фильм или обновляет его год выхода и жанры, сохраняя число лайков.
+     * Как и остальные изменения рейтинга, применяется после коммита транзакции.
+     */
+    public void registerFilm(long filmId, int releaseYear, long[] genreIds) {
+        Attributes attributes = new Attributes(releaseYear, sorted(genreIds));
+        TransactionHooks.afterCommit(() -> update(filmId, likes -> likes, attributes, ALWAYS));
+    }
+
+    public void removeFilm(long filmId) {
+        TransactionHooks.afterCommit(() -> remove(filmId, ALWAYS));
+    }
+
+    public void increment(long filmId) {
+        adjust(filmId, 1);
+    }
+
+    public void decrement(long filmId) {
+        adjust(filmId, -1);
+    }
+
+    public long getLikes(long filmId) {
+        return likesByFilm.getOrDefault(filmId, 0L);
+    }
+
+    public List<Long> top(int count) {
+        return top(count, null, null);
+    }
+
+    /**
+     * Топ фильмов с необязательными фильтрами по жанру и году выхода. Если заданы оба фильтра,
+     * читается рейтинг года, а жанр проверяется у каждого фильма.
+     */
+    public List<Long> top(int count, Long genreId, Integer year) {
+        NavigableSet<Entry> source;
+        if (year != null) {
+            source = rankingByYear.getOrDefault(year, EMPTY_RANKING);
+        } else if (genreId != null) {
+            source = rankingByGenre.getOrDefault(genreId, EMPTY_RANKING);
+        } else {
+            source = ranking;
+        }
+        boolean checkGenre = year != null && genreId != null;
+
+        List<Long> filmIds = new ArrayList<>(Math.min(count, likesByFilm.size()));
+        Iterator<Entry> iterator = source.iterator();
+        while (filmIds.size() < count && iterator.hasNext()) {
+            long filmId = iterator.next().filmId();
+            if (!checkGenre || attributesByFilm.getOrDefault(filmId, Attributes.NONE).hasGenre(genreId)) {
+                filmIds.add(filmId);
+            }
+        }
+        return filmIds;
+    }
+
+    public void adjust(long filmId, long delta) {
+        TransactionHooks.afterCommit(() -> update(filmId, likes -> likes + delta, null, ALWAYS));
+    }
+
+    /**
+     * Применяет изменение, если фильм не менялся после {@code unchangedSince}. Проверка идёт
+     * под блокировкой записи фильма, поэтому конкурирующее изменение не затирается.
+     */
+    private boolean update(long filmId, LongUnaryOperator likesUpdate, Attributes newAttributes, long unchangedSince) {
+        boolean[] applied = new boolean[1];
+        likesByFilm.compute(filmId, (id, current) -> {
+            if (changedAt.getOrDefault(id, 0L) > unchangedSince) {
+                return current;
+            }
+            applied[0] = true;
+            changedAt.put(id, changeSequence.incrementAndGet());
+            Attributes attributes = attributesByFilm.getOrDefault(id, Attributes.NONE);
+            Attributes updatedAttributes = newAttributes != null ? newAttributes : attributes;
+            long likes = current == null ? 0 : current;
+            long updated = Math.max(0, likesUpdate.applyAsLong(likes));
+            if (current != null) {
+                if (likes == updated && attributes.sameAs(updatedAttributes)) {
+                    return current;
+                }
+                unindex(new Entry(id, likes), attributes);
+            }
+            attributesByFilm.put(id, updatedAttributes);
+            index(new Entry(id, updated), updatedAttributes);
+            return updated;
+        });
+        return applied[0];
+    }
+
+    private boolean remove(long filmId, long unchangedSince) {
+        boolean[] removed = new boolean[1];
+        likesByFilm.computeIfPresent(filmId, (id, likes) -> {
+            if (changedAt.getOrDefault(id, 0L) > unchangedSince) {
+                return likes;
+            }
+            removed[0] = true;
+            // Метка остаётся: сверка, начавшаяся до удаления, не должна вернуть фильм
+            changedAt.put(id, changeSequence.incrementAndGet());
+            unindex(new Entry(id, likes), attributesByFilm.getOrDefault(id, Attributes.NONE));
+            attributesByFilm.remove(id);
+            return null;
+        });
+        return removed[0];
+    }
+
+    private void index(Entry entry, Attributes attributes) {
+        ranking.add(entry);
+        for (long genreId : attributes.genreIds()) {
+            rankingByGenre.computeIfAbsent(genreId, id -> new ConcurrentSkipListSet<>(RANKING_ORDER)).add(entry);
+        }
+        if (attributes.releaseYear() != Attributes.UNKNOWN_YEAR) {
+            rankingByYear.computeIfAbsent(attributes.releaseYear(), year -> new ConcurrentSkipListSet<>(RANKING_ORDER))
+                    .add(entry);
+        }
+    }
+
+    private void unindex(Entry entry, Attributes attributes) {
+        ranking.remove(entry);
+        for (long genreId : attributes.genreIds()) {
+            rankingByGenre.getOrDefault(genreId, EMPTY_RANKING).remove(entry);
+        }
+        rankingByYear.getOrDefault(attributes.releaseYear(), EMPTY_RANKING).remove(entry);
+    }
+
+    private int reload() {
+        reloadLock.lock();
+        try {
+            return reloadSince(changeSequence.get());
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    private int reloadSince(long startedAt) {
+        String sql = "SELECT film_id, likes_count, EXTRACT(YEAR FROM release_date) AS release_year FROM films";
+
+        Map<Long, Long> actual = new HashMap<>();
+        Map<Long, Integer> years = new HashMap<>();
+        Map<Long, List<Long>> genres = new HashMap<>();
+        Map<Long, Long> pendingDeltas = new HashMap<>();
+        // Несброшенные лайки ещё не учтены в likes_count, но уже видны пользователям. Сбросы
+        // на время чтения задерживаются, чтобы изменение не попало и в likes_count, и в буфер
+        likeBuffer.readConsistently(() -> {
+            jdbcTemplate.query(sql, rs -> {
+                long filmId = rs.getLong("film_id");
+                actual.put(filmId, rs.getLong("likes_count"));
+                years.put(filmId, rs.getInt("release_year"));
+            });
+            jdbcTemplate.query("SELECT film_id, genre_id FROM film_genres", rs -> {
+                genres.computeIfAbsent(rs.getLong("film_id"), id -> new ArrayList<>()).add(rs.getLong("genre_id"));
+            });
+        }, (filmId, userId, add) -> pendingDeltas.merge(filmId, add ? 1L : -1L, Long::sum));
+        pendingDeltas.forEach((filmId, delta) ->
+                actual.computeIfPresent(filmId, (id, likes) -> Math.max(0, likes + delta)));
+
+        int drift = 0;
+        for (Map.Entry<Long, Long> entry : actual.entrySet()) {
+            long filmId = entry.getKey();
+            long likes = entry.getValue();
+            Attributes attributes = new Attributes(years.get(filmId), sorted(genres.getOrDefault(filmId, List.of())
+                    .stream().mapToLong(Long::longValue).toArray()));
+            Long current = likesByFilm.get(filmId);
+            if ((current == null || current != likes
+                    || !attributes.sameAs(attributesByFilm.getOrDefault(filmId, Attributes.NONE)))
+                    && update(filmId, ignored -> likes, attributes, startedAt)) {
+                drift++;
+            }
+        }
+
+        // Фильма нет в прочитанном: он мог быть создан после чтения, поэтому удаляется,
+        // только если его нет в БД и сейчас
+        List<Long> missing = new ArrayList<>();
+        for (Long filmId : likesByFilm.keySet()) {
+            if (!actual.containsKey(filmId)) {
+                missing.add(filmId);
+            }
+        }
+        Set<Long> stillExisting = existing(missing);
+        for (Long filmId : missing) {
+            if (!stillExisting.contains(filmId) && remove(filmId, startedAt)) {
+                drift++;
+            }
+        }
+
+        // Старые метки больше ничего не защищают: следующая сверка начнётся позже них
+        changedAt.values().removeIf(changed -> changed <= startedAt);
+        return drift;
+    }
+
+    private Set<Long> existing(List<Long> filmIds) {
+        Set<Long> existing = new HashSet<>();
+        if (filmIds.isEmpty()) {
+            return existing;
+        }
+        jdbcTemplate.query("SELECT film_id FROM films WHERE film_id = ANY(?)", ps -> {
+            ps.setArray(1, ps.getConnection().createArrayOf("BIGINT", filmIds.toArray()));
+        }, rs -> {
+            existing.add(rs.getLong("film_id"));
+        });
+        return existing;
+    }
+
+    private static long[] sorted(long[] values) {
+        long[] copy = values.clone();
+        Arrays.sort(copy);
+        return copy;
+    }
+
+    private record Entry(long filmId, long likes) {
+    }
+
+    private record Attributes(int releaseYear, long[] genreIds) {
+        static final int UNKNOWN_YEAR = Integer.MIN_VALUE;
+        static final Attributes NONE = new Attributes(UNKNOWN_YEAR, new long[0]);
+
+        boolean hasGenre(long genreId) {
+            return Arrays.binarySearch(genreIds, genreId) >= 0;
+        }
+
+        boolean sameAs(Attributes other) {
+            return releaseYear == other.releaseYear && Arrays.equals(genreIds, other.genreIds);
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import ru.yandex.practicum.filmorate.model.Suggestion;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Сжатое префиксное дерево (radix tree) для подсказок при вводе. Цепочки узлов с единственным
+ * потомком схлопнуты в одно ребро со строковой меткой, поэтому узлов не больше, чем удвоенное число
+ * различных значений, а не по узлу на каждый символ. Дочерние узлы хранятся в массиве, отсортированном
+ * по первому символу метки, поэтому обход даёт значения в алфавитном порядке и останавливается,
+ * как только набран лимит.
+ */
+public class PrefixSuggester {
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, String> values = new HashMap<>();
+    private final Node root = new Node("");
+
+    public void put(long id, String value) {
+        lock.writeLock().lock();
+        try {
+            String previous = values.remove(id);
+            if (previous != null) {
+                remove(root, fold(previous), 0, id);
+            }
+            if (value != null && !value.isBlank()) {
+                values.put(id, value);
+                insert(fold(value), id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long id) {
+        put(id, null);
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return values.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * До {@code limit} значений, начинающихся с {@code prefix} без учёта регистра;
+     * одинаковые значения упорядочены по ID.
+     */
+    public List<Suggestion> suggest(String prefix, int limit) {
+        List<Suggestion> result = new ArrayList<>(limit);
+        if (prefix == null || prefix.isEmpty() || limit <= 0) {
+            return result;
+        }
+
+        lock.readLock().lock();
+        try {
+            Node node = find(fold(prefix));
+            if (node != null) {
+                node.collect(result, limit);
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static String fold(String value) {
+        char[] chars = value.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = TextFolding.fold(chars[i]);
+        }
+        return new String(chars);
+    }
+
+    private void insert(String key, long id) {
+        Node node = root;
+        int position = 0;
+        while (position < key.length()) {
+            int index = node.childIndex(key.charAt(position));
+            if (index < 0) {
+                Node leaf = new Node(key.substring(position));
+                leaf.ids = SortedLongArrays.add(null, id);
+                node.children = insertAt(node.children, -index - 1, leaf);
+                return;
+            }
+
+            Node child = node.children[index];
+            int common = commonPrefix(child.label, key, position);
+            if (common < child.label.length()) {
+                // Ключ расходится с меткой посередине: ребро делится промежуточным узлом
+                Node middle = new Node(child.label.substring(0, common));
+                child.label = child.label.substring(common);
+                middle.children = new Node[]{child};
+                node.children[index] = middle;
+                child = middle;
+            }
+            node = child;
+            position += common;
+        }
+        node.ids = SortedLongArrays.add(node.ids, id);
+    }
+
+    private static void remove(Node node, String key, int position, long id) {
+        if (position == key.length()) {
+            node.ids = SortedLongArrays.remove(node.ids, id);
+            return;
+        }
+
+        int index = node.childIndex(key.charAt(position));
+        if (index < 0) {
+            return;
+        }
+        Node child = node.children[index];
+        if (!key.startsWith(child.label, position)) {
+            return;
+        }
+        remove(child, key, position + child.label.length(), id);
+
+        // Опустевший узел удаляется, а узел с единственным потомком сливается с ним в одно ребро
+        if (child.ids == null && child.children.length == 0) {
+            node.children = removeAt(node.children, index);
+        } else if (child.ids == null && child.children.length == 1) {
+            Node grandchild = child.children[0];
+            grandchild.label = child.label + grandchild.label;
+            node.children[index] = grandchild;
+        }
+    }
+
+    private Node find(String prefix) {
+        Node node = root;
+        int position = 0;
+        while (position < prefix.length()) {
+            int index = node.childIndex(prefix.charAt(position));
+            if (index < 0) {
+                return null;
+            }
+            Node child = node.children[index];
+            int remaining = prefix.length() - position;
+            if (remaining <= child.label.length()) {
+                // Префикс заканчивается внутри метки: подходят все значения поддерева
+                return child.label.regionMatches(0, prefix, position, remaining) ? child : null;
+            }
+            if (!prefix.startsWith(child.label, position)) {
+                return null;
+            }
+            node = child;
+            position += child.label.length();
+        }
+        return node;
+    }
+
+    private static int commonPrefix(String label, String key, int position) {
+        int max = Math.min(label.length(), key.length() - position);
+        int length = 0;
+        while (length < max && label.charAt(length) == key.charAt(position + length)) {
+            length++;
+        }
+        return length;
+    }
+
+    private class Node {
+        private static final Node[] NO_CHILDREN = new Node[0];
+
+        private String label;
+        private Node[] children = NO_CHILDREN;
+        private long[] ids;
+
+        Node(String label) {
+            this.label = label;
+        }
+
+        /**
+         * Индекс потомка, чья метка начинается с {@code first}, или {@code -(точка вставки) - 1}.
+         */
+        int childIndex(char first) {
+            int low = 0;
+            int high = children.length - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                char candidate = children[middle].label.charAt(0);
+                if (candidate < first) {
+                    low = middle + 1;
+                } else if (candidate > first) {
+                    high = middle - 1;
+                } else {
+                    return middle;
+                }
+            }
+            return -(low + 1);
+        }
+
+        void collect(List<Suggestion> result, int limit) {
+            if (ids != null) {
+                for (int i = 0; i < ids.length && result.size() < limit; i++) {
+                    result.add(new Suggestion(ids[i], values.get(ids[i])));
+                }
+            }
+            for (int i = 0; i < children.length && result.size() < limit; i++) {
+                children[i].collect(result, limit);
+            }
+        }
+    }
+
+    private static <T> T[] insertAt(T[] array, int index, T value) {
+        T[] result = Arrays.copyOf(array, array.length + 1);
+        System.arraycopy(array, index, result, index + 1, array.length - index);
+        result[index] = value;
+        return result;
+    }
+
+    private static <T> T[] removeAt(T[] array, int index) {
+        T[] result = Arrays.copyOf(array, array.length - 1);
+        System.arraycopy(array, index + 1, result, index, array.length - index - 1);
+        return result;
+    }
+}
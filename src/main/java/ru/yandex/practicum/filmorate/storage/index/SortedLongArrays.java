@@ -0,0 +1,43 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import java.util.Arrays;
+
+/**
+ * Операции над отсортированными множествами {@code long[]}, которые индексы заменяют целиком.
+ * Исходный массив не меняется, пустое множество представлено {@code null}.
+ */
+final class SortedLongArrays {
+
+    private SortedLongArrays() {
+    }
+
+    static long[] add(long[] values, long value) {
+        long[] current = values != null ? values : new long[0];
+        int index = Arrays.binarySearch(current, value);
+        if (index >= 0) {
+            return current;
+        }
+
+        int insertAt = -index - 1;
+        long[] result = new long[current.length + 1];
+        System.arraycopy(current, 0, result, 0, insertAt);
+        result[insertAt] = value;
+        System.arraycopy(current, insertAt, result, insertAt + 1, current.length - insertAt);
+        return result;
+    }
+
+    static long[] remove(long[] values, long value) {
+        int index = values != null ? Arrays.binarySearch(values, value) : -1;
+        if (index < 0) {
+            return values;
+        }
+        if (values.length == 1) {
+            return null;
+        }
+
+        long[] result = new long[values.length - 1];
+        System.arraycopy(values, 0, result, 0, index);
+        System.arraycopy(values, index + 1, result, index, values.length - index - 1);
+        return result;
+    }
+}
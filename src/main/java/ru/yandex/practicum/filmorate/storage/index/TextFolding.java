@@ -0,0 +1,15 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+final class TextFolding {
+
+    private TextFolding() {
+    }
+
+    /**
+     * Приводит символ к виду для сравнения: нижний регистр, «ё» как «е».
+     */
+    static char fold(char c) {
+        char lower = Character.toLowerCase(c);
+        return lower == 'ё' ? 'е' : lower;
+    }
+}
@@ -0,0 +1,643 @@
+package ru.yandex.practicum.filmorate.transfer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.cache.BoundedCache;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.impl.FilmStorage;
+import ru.yandex.practicum.filmorate.impl.UserStorage;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.ReferenceDataRegistry;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.LikeWriteBehindBuffer;
+import ru.yandex.practicum.filmorate.storage.index.AutocompleteIndex;
+import ru.yandex.practicum.filmorate.storage.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.index.FriendGraph;
+import ru.yandex.practicum.filmorate.storage.index.LikeIndex;
+import ru.yandex.practicum.filmorate.storage.index.PopularityLeaderboard;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Массовая загрузка фильмов, пользователей и связей между ними из CSV/NDJSON.
+ * Записи проверяются по тем же правилам, что и в API, и пишутся пакетами JDBC,
+ * по одной транзакции на пакет. Пакет с ошибкой повторяется построчно, чтобы
+ * отклонить только проблемные записи.
+ */
+@Slf4j
+@Service
+public class BulkImporter {
+    private static final int MAX_REPORTED_ERRORS = 100;
+    private static final int IO_BUFFER_SIZE = 64 * 1024;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final FilmService filmService;
+    private final UserService userService;
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+    private final ReferenceDataRegistry referenceDataRegistry;
+    private final PopularityLeaderboard popularityLeaderboard;
+    private final FriendGraph friendGraph;
+    private final LikeIndex likeIndex;
+    private final FilmSearchIndex searchIndex;
+    private final AutocompleteIndex autocompleteIndex;
+    private final LikeWriteBehindBuffer likeBuffer;
+    private final List<BoundedCache<?, ?>> caches;
+    private final int batchSize;
+    private final long progressInterval;
+    private final Set<String> tablesWithExplicitIds = ConcurrentHashMap.newKeySet();
+
+    public BulkImporter(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            ObjectMapper objectMapper,
+            FilmService filmService,
+            UserService userService,
+            @Qualifier("filmDbStorage") FilmStorage filmStorage,
+            @Qualifier("userDbStorage") UserStorage userStorage,
+            ReferenceDataRegistry referenceDataRegistry,
+            PopularityLeaderboard popularityLeaderboard,
+            FriendGraph friendGraph,
+            LikeIndex likeIndex,
+            FilmSearchIndex searchIndex,
+            AutocompleteIndex autocompleteIndex,
+            LikeWriteBehindBuffer likeBuffer,
+            List<BoundedCache<?, ?>> caches,
+            @Value("${filmorate.import.batch-size:1000}") int batchSize,
+            @Value("${filmorate.import.progress-interval:100000}") long progressInterval) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.filmService = filmService;
+        this.userService = userService;
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        this.referenceDataRegistry = referenceDataRegistry;
+        this.popularityLeaderboard = popularityLeaderboard;
+        this.friendGraph = friendGraph;
+        this.likeIndex = likeIndex;
+        this.searchIndex = searchIndex;
+        this.autocompleteIndex = autocompleteIndex;
+        this.likeBuffer = likeBuffer;
+        this.caches = caches;
+        this.batchSize = batchSize;
+        this.progressInterval = progressInterval;
+    }
+
+    public List<ImportReport> importFiles(Map<CatalogEntity, Path> files) {
+        Map<CatalogEntity, Path> ordered = new EnumMap<>(files);
+        List<ImportReport> reports = new ArrayList<>();
+        try {
+            for (Map.Entry<CatalogEntity, Path> entry : ordered.entrySet()) {
+                Path file = entry.getValue();
+                ImportFormat format = ImportFormat.fromFileName(file);
+                try (InputStream in = openFile(file)) {
+                    log.info("Импорт {} из файла {}", entry.getKey(), file);
+                    reports.add(importStream(entry.getKey(), format, in));
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Не удалось прочитать файл " + file, e);
+                }
+            }
+        } finally {
+            refreshIndexes();
+        }
+        return reports;
+    }
+
+    public ImportReport importStream(CatalogEntity entity, ImportFormat format, InputStream in) throws IOException {
+        return switch (entity) {
+            case USERS -> run(entity, format, in, this::parseUser, (batch, reject) -> batch, this::insertUsers);
+            case FILMS -> run(entity, format, in, this::parseFilm, (batch, reject) -> batch, this::insertFilms);
+            case FILM_GENRES -> run(entity, format, in, this::parseFilmGenre,
+                    this::filterFilmGenres, this::insertFilmGenres);
+            case LIKES -> {
+                // Несброшенные одиночные лайки должны попасть в БД раньше загружаемых
+                likeBuffer.flush();
+                yield run(entity, format, in, this::parseLike, this::filterLikes, this::insertLikes);
+            }
+            case FRIENDSHIPS -> run(entity, format, in, this::parseFriendship,
+                    this::filterFriendships, this::insertFriendships);
+        };
+    }
+
+    private <T> ImportReport run(
+            CatalogEntity entity,
+            ImportFormat format,
+            InputStream in,
+            Function<JsonNode, T> parser,
+            BiFunction<List<T>, Consumer<String>, List<T>> referenceFilter,
+            ToIntFunction<List<T>> inserter) throws IOException {
+        long startedAt = System.nanoTime();
+        Progress progress = new Progress(entity);
+        List<T> batch = new ArrayList<>(batchSize);
+
+        try (ImportRecordReader reader = new ImportRecordReader(in, format, objectMapper)) {
+            while (true) {
+                JsonNode record;
+                try {
+                    record = reader.next();
+                    if (record == null) {
+                        break;
+                    }
+                    progress.read = reader.getRecordNumber();
+                    batch.add(parser.apply(record));
+                } catch (ValidationException | NotFoundException e) {
+                    progress.read = reader.getRecordNumber();
+                    progress.reject(prefix(reader.getRecordNumber(), e.getMessage()));
+                    continue;
+                }
+
+                if (batch.size() == batchSize) {
+                    writeBatch(batch, referenceFilter, inserter, progress);
+                }
+            }
+            writeBatch(batch, referenceFilter, inserter, progress);
+        }
+
+        if (entity == CatalogEntity.USERS || entity == CatalogEntity.FILMS) {
+            restartIdentity(entity);
+        }
+
+        ImportReport report = new ImportReport(entity, progress.read, progress.imported, progress.skipped,
+                progress.rejected, List.copyOf(progress.errors), Duration.ofNanos(System.nanoTime() - startedAt));
+        log.info("Импорт {} завершён: прочитано {}, загружено {}, пропущено {}, отклонено {} за {} мс",
+                entity, report.read(), report.imported(), report.skipped(), report.rejected(),
+                report.elapsed().toMillis());
+        return report;
+    }
+
+    private <T> void writeBatch(
+            List<T> batch,
+            BiFunction<List<T>, Consumer<String>, List<T>> referenceFilter,
+            ToIntFunction<List<T>> inserter,
+            Progress progress) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        List<T> valid = referenceFilter.apply(batch, progress::reject);
+        try {
+            int inserted = transactionTemplate.execute(status -> inserter.applyAsInt(valid));
+            progress.imported += inserted;
+            progress.skipped += valid.size() - inserted;
+        } catch (DataAccessException e) {
+            log.warn("Пакет из {} записей отклонён БД, повтор по одной записи: {}",
+                    valid.size(), e.getMostSpecificCause().getMessage());
+            for (T item : valid) {
+                try {
+                    int inserted = transactionTemplate.execute(status -> inserter.applyAsInt(List.of(item)));
+                    progress.imported += inserted;
+                    progress.skipped += 1 - inserted;
+                } catch (DataAccessException rowError) {
+                    progress.reject(item + ": " + rowError.getMostSpecificCause().getMessage());
+                }
+            }
+        }
+
+        batch.clear();
+        progress.report();
+    }
+
+    private User parseUser(JsonNode record) {
+        User user = User.builder()
+                .id(longValue(record, "id", false))
+                .email(text(record, "email"))
+                .login(text(record, "login"))
+                .name(text(record, "name"))
+                .birthday(date(record, "birthday"))
+                .build();
+        userService.validateUser(user);
+
+        if (user.getName() == null || user.getName().isBlank()) {
+            user.setName(user.getLogin());
+        }
+        return user;
+    }
+
+    private Film parseFilm(JsonNode record) {
+        Integer duration = intValue(record, "duration");
+        Film film = Film.builder()
+                .id(longValue(record, "id", false))
+                .name(text(record, "name"))
+                .description(text(record, "description"))
+                .releaseDate(date(record, "releaseDate"))
+                .duration(duration != null ? duration : 0)
+                .build();
+
+        Long mpaId = longValue(record, "mpa", false);
+        if (mpaId != null) {
+            film.setMpa(referenceDataRegistry.findMpa(mpaId));
+            if (film.getMpa() == null) {
+                throw new NotFoundException("Рейтинг MPA с ID " + mpaId + " не найден");
+            }
+        }
+        film.setGenres(ids(record, "genres").stream()
+                .map(id -> new Genre(id, null))
+                .collect(Collectors.toCollection(LinkedHashSet::new)));
+
+        filmService.validateFilm(film);
+        filmService.validateAndEnrichFilmData(film);
+        return film;
+    }
+
+    private Link parseFilmGenre(JsonNode record) {
+        Link link = new Link(longValue(record, "filmId", true), longValue(record, "genreId", true));
+        if (referenceDataRegistry.findGenre(link.targetId()) == null) {
+            throw new NotFoundException("Жанр с ID " + link.targetId() + " не найден");
+        }
+        return link;
+    }
+
+    private Link parseLike(JsonNode record) {
+        return new Link(longValue(record, "filmId", true), longValue(record, "userId", true));
+    }
+
+    private Link parseFriendship(JsonNode record) {
+        Link link = new Link(longValue(record, "userId", true), longValue(record, "friendId", true));
+        if (link.sourceId() == link.targetId()) {
+            throw new ValidationException("Пользователь не может добавить в друзья самого себя");
+        }
+        return link;
+    }
+
+    private List<Link> filterFilmGenres(List<Link> batch, Consumer<String> reject) {
+        Set<Long> films = filmStorage.findExistingIds(sourceIds(batch));
+        return filterLinks(batch, reject, films, "Фильм", null, null);
+    }
+
+    private List<Link> filterLikes(List<Link> batch, Consumer<String> reject) {
+        Set<Long> films = filmStorage.findExistingIds(sourceIds(batch));
+        Set<Long> users = userStorage.findExistingIds(targetIds(batch));
+        return filterLinks(batch, reject, films, "Фильм", users, "Пользователь");
+    }
+
+    private List<Link> filterFriendships(List<Link> batch, Consumer<String> reject) {
+        Set<Long> ids = sourceIds(batch);
+        ids.addAll(targetIds(batch));
+        Set<Long> users = userStorage.findExistingIds(ids);
+        return filterLinks(batch, reject, users, "Пользователь", users, "Пользователь");
+    }
+
+    private List<Link> filterLinks(List<Link> batch, Consumer<String> reject,
+                                   Set<Long> sources, String sourceName,
+                                   Set<Long> targets, String targetName) {
+        List<Link> valid = new ArrayList<>(batch.size());
+        for (Link link : batch) {
+            if (!sources.contains(link.sourceId())) {
+                reject.accept(link + ": " + sourceName + " с ID " + link.sourceId() + " не найден");
+            } else if (targets != null && !targets.contains(link.targetId())) {
+                reject.accept(link + ": " + targetName + " с ID " + link.targetId() + " не найден");
+            } else {
+                valid.add(link);
+            }
+        }
+        return valid;
+    }
+
+    private int insertUsers(List<User> users) {
+        return insertRows(users, "users", "user_id", List.of("email", "login", "name", "birthday"),
+                User::getId, User::setId, (ps, user) -> {
+                    ps.setString(1, user.getEmail());
+                    ps.setString(2, user.getLogin());
+                    ps.setString(3, user.getName());
+                    ps.setDate(4, Date.valueOf(user.getBirthday()));
+                });
+    }
+
+    private int insertFilms(List<Film> films) {
+        int inserted = insertRows(films, "films", "film_id",
+                List.of("name", "description", "release_date", "duration", "mpa_id"),
+                Film::getId, Film::setId, (ps, film) -> {
+                    ps.setString(1, film.getName());
+                    ps.setString(2, film.getDescription());
+                    ps.setDate(3, Date.valueOf(film.getReleaseDate()));
+                    ps.setInt(4, film.getDuration());
+                    ps.setLong(5, film.getMpa().getId());
+                });
+
+        List<Link> genres = new ArrayList<>();
+        for (Film film : films) {
+            for (Genre genre : film.getGenres()) {
+                genres.add(new Link(film.getId(), genre.getId()));
+            }
+        }
+        insertFilmGenres(genres);
+
+        return inserted;
+    }
+
+    /**
+     * Записи с ID вставляются как есть, остальные получают ID от автоинкремента таблицы —
+     * так же, как при создании через API, поэтому импорт не сталкивается с параллельными вставками.
+     * Столбец ID идёт последним, чтобы обе формы запроса заполнялись одним {@code values}.
+     */
+    private <T> int insertRows(List<T> items, String table, String idColumn, List<String> columns,
+                               Function<T, Long> getId, BiConsumer<T, Long> setId,
+                               ParameterizedPreparedStatementSetter<T> values) {
+        List<T> withId = new ArrayList<>();
+        List<T> withoutId = new ArrayList<>();
+        for (T item : items) {
+            (getId.apply(item) != null ? withId : withoutId).add(item);
+        }
+
+        int inserted = 0;
+        if (!withId.isEmpty()) {
+            tablesWithExplicitIds.add(table);
+            String sql = "INSERT INTO " + table + " (" + String.join(", ", columns) + ", " + idColumn + ") " +
+                    "VALUES (" + "?, ".repeat(columns.size()) + "?)";
+            int[][] counts = jdbcTemplate.batchUpdate(sql, withId, withId.size(), (ps, item) -> {
+                values.setValues(ps, item);
+                ps.setLong(columns.size() + 1, getId.apply(item));
+            });
+            inserted += affected(counts, null);
+        }
+
+        if (!withoutId.isEmpty()) {
+            String sql = "INSERT INTO " + table + " (" + String.join(", ", columns) + ") " +
+                    "VALUES (" + "?, ".repeat(columns.size() - 1) + "?)";
+            KeyHolder keyHolder = new GeneratedKeyHolder();
+            jdbcTemplate.batchUpdate(connection -> connection.prepareStatement(sql, new String[]{idColumn}),
+                    new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement ps, int i) throws SQLException {
+                            values.setValues(ps, withoutId.get(i));
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return withoutId.size();
+                        }
+                    }, keyHolder);
+
+            List<Map<String, Object>> keys = keyHolder.getKeyList();
+            if (keys.size() != withoutId.size()) {
+                throw new IllegalStateException("БД вернула " + keys.size() + " ключей для "
+                        + withoutId.size() + " записей " + table);
+            }
+            // Если транзакция пакета откатится, выданный ID останется у записи: автоинкремент
+            // его больше не выдаст, поэтому повтор по одной записи вставит её с тем же ID
+            for (int i = 0; i < keys.size(); i++) {
+                setId.accept(withoutId.get(i), ((Number) keys.get(i).values().iterator().next()).longValue());
+            }
+            inserted += withoutId.size();
+        }
+        return inserted;
+    }
+
+    private int insertFilmGenres(List<Link> links) {
+        String sql = "INSERT INTO film_genres (film_id, genre_id) " +
+                "SELECT CAST(? AS BIGINT), CAST(? AS INTEGER) FROM DUAL " +
+                "WHERE NOT EXISTS (SELECT 1 FROM film_genres WHERE film_id = ? AND genre_id = ?)";
+        return affected(insertLinks(sql, links), null);
+    }
+
+    private int insertLikes(List<Link> likes) {
+        String sql = "INSERT INTO likes (film_id, user_id) " +
+                "SELECT CAST(? AS BIGINT), CAST(? AS BIGINT) FROM DUAL " +
+                "WHERE NOT EXISTS (SELECT 1 FROM likes WHERE film_id = ? AND user_id = ?)";
+        Map<Long, Integer> deltas = new HashMap<>();
+        int inserted = affected(insertLinks(sql, likes),
+                index -> deltas.merge(likes.get(index).sourceId(), 1, Integer::sum));
+
+        String countSql = "UPDATE films SET likes_count = likes_count + ? WHERE film_id = ?";
+        jdbcTemplate.batchUpdate(countSql, deltas.entrySet(), deltas.size(), (ps, entry) -> {
+            ps.setInt(1, entry.getValue());
+            ps.setLong(2, entry.getKey());
+        });
+        return inserted;
+    }
+
+    private int insertFriendships(List<Link> friendships) {
+        String sql = "INSERT INTO friendships (user_id, friend_id, status) " +
+                "SELECT CAST(? AS BIGINT), CAST(? AS BIGINT), 'CONFIRMED' FROM DUAL " +
+                "WHERE NOT EXISTS (SELECT 1 FROM friendships WHERE user_id = ? AND friend_id = ?)";
+        return affected(insertLinks(sql, friendships), null);
+    }
+
+    private int[][] insertLinks(String sql, List<Link> links) {
+        if (links.isEmpty()) {
+            return new int[0][];
+        }
+
+        return jdbcTemplate.batchUpdate(sql, links, links.size(), (ps, link) -> {
+            ps.setLong(1, link.sourceId());
+            ps.setLong(2, link.targetId());
+            ps.setLong(3, link.sourceId());
+            ps.setLong(4, link.targetId());
+        });
+    }
+
+    private int affected(int[][] counts, IntConsumer onInserted) {
+        int inserted = 0;
+        int index = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                if (count > 0) {
+                    inserted++;
+                    if (onInserted != null) {
+                        onInserted.accept(index);
+                    }
+                }
+                index++;
+            }
+        }
+        return inserted;
+    }
+
+    private void restartIdentity(CatalogEntity entity) {
+        String table = entity == CatalogEntity.FILMS ? "films" : "users";
+        String column = entity == CatalogEntity.FILMS ? "film_id" : "user_id";
+        if (!tablesWithExplicitIds.remove(table)) {
+            // Все ID выдал автоинкремент, счётчик и так впереди
+            return;
+        }
+        Long maxId = jdbcTemplate.queryForObject(
+                "SELECT COALESCE(MAX(" + column + "), 0) FROM " + table, Long.class);
+        long nextId = (maxId != null ? maxId : 0) + 1;
+
+        // Явно заданные ID не сдвигают счётчик автоинкремента, иначе новые записи через API с ними столкнутся
+        jdbcTemplate.execute("ALTER TABLE " + table + " ALTER COLUMN " + column + " RESTART WITH " + nextId);
+    }
+
+    private void refreshIndexes() {
+        popularityLeaderboard.reconcile();
+        friendGraph.reload();
+        likeIndex.reload();
+        searchIndex.reload();
+        autocompleteIndex.reload();
+        caches.forEach(BoundedCache::invalidateAll);
+        log.info("Индексы и кэши обновлены после импорта");
+    }
+
+    private InputStream openFile(Path file) throws IOException {
+        InputStream in = new BufferedInputStream(Files.newInputStream(file), IO_BUFFER_SIZE);
+        return ImportFormat.isCompressed(file) ? new GZIPInputStream(in, IO_BUFFER_SIZE) : in;
+    }
+
+    private String text(JsonNode record, String field) {
+        JsonNode node = record.get(field);
+        return node == null || node.isNull() ? null : node.asText();
+    }
+
+    private Long longValue(JsonNode record, String field, boolean required) {
+        JsonNode node = record.get(field);
+        if (node != null && node.isObject()) {
+            node = node.get("id");
+        }
+        if (node == null || node.isNull() || node.asText().isBlank()) {
+            if (required) {
+                throw new ValidationException("Поле " + field + " должно быть указано");
+            }
+            return null;
+        }
+        try {
+            return Long.parseLong(node.asText().trim());
+        } catch (NumberFormatException e) {
+            throw new ValidationException("Поле " + field + " должно быть числом: " + node.asText());
+        }
+    }
+
+    private Integer intValue(JsonNode record, String field) {
+        Long value = longValue(record, field, false);
+        if (value == null) {
+            return null;
+        }
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new ValidationException("Поле " + field + " вне допустимого диапазона: " + value);
+        }
+        return value.intValue();
+    }
+
+    private LocalDate date(JsonNode record, String field) {
+        String value = text(record, field);
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(value.trim());
+        } catch (DateTimeParseException e) {
+            throw new ValidationException("Поле " + field + " должно быть датой в формате ГГГГ-ММ-ДД: " + value);
+        }
+    }
+
+    private List<Long> ids(JsonNode record, String field) {
+        JsonNode node = record.get(field);
+        List<Long> ids = new ArrayList<>();
+        if (node == null || node.isNull()) {
+            return ids;
+        }
+
+        if (node.isArray()) {
+            for (JsonNode element : node) {
+                JsonNode id = element.isObject() ? element.get("id") : element;
+                ids.add(parseId(field, id == null ? "" : id.asText()));
+            }
+        } else {
+            // В CSV список ID передаётся одной ячейкой через «|»
+            for (String id : node.asText().split("\\|")) {
+                if (!id.isBlank()) {
+                    ids.add(parseId(field, id));
+                }
+            }
+        }
+        return ids;
+    }
+
+    private Long parseId(String field, String value) {
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new ValidationException("Поле " + field + " должно содержать числовые ID: " + value);
+        }
+    }
+
+    private static Set<Long> sourceIds(List<Link> links) {
+        return links.stream().map(Link::sourceId).collect(Collectors.toSet());
+    }
+
+    private static Set<Long> targetIds(List<Link> links) {
+        return links.stream().map(Link::targetId).collect(Collectors.toSet());
+    }
+
+    private static String prefix(long recordNumber, String message) {
+        return message.startsWith("Запись ") ? message : "Запись " + recordNumber + ": " + message;
+    }
+
+    private record Link(long sourceId, long targetId) {
+    }
+
+    private class Progress {
+        private final CatalogEntity entity;
+        private final List<String> errors = new ArrayList<>();
+        private long read;
+        private long imported;
+        private long skipped;
+        private long rejected;
+        private long lastReported;
+
+        Progress(CatalogEntity entity) {
+            this.entity = entity;
+        }
+
+        void reject(String error) {
+            rejected++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(error);
+                log.warn("Импорт {}: запись отклонена — {}", entity, error);
+            }
+        }
+
+        void report() {
+            if (read - lastReported >= progressInterval) {
+                lastReported = read;
+                log.info("Импорт {}: прочитано {}, загружено {}, пропущено {}, отклонено {}",
+                        entity, read, imported, skipped, rejected);
+            }
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package ru.yandex.practicum.filmorate.transfer;
+
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+
+/**
+ * Наборы данных каталога в порядке зависимостей: связи идут после фильмов и пользователей.
+ */
+public enum CatalogEntity {
+    USERS("users"),
+    FILMS("films"),
+    FILM_GENRES("film-genres"),
+    LIKES("likes"),
+    FRIENDSHIPS("friendships");
+
+    private final String key;
+
+    CatalogEntity(String key) {
+        this.key = key;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public static CatalogEntity fromKey(String key) {
+        for (CatalogEntity entity : values()) {
+            if (entity.key.equals(key)) {
+                return entity;
+            }
+        }
+        throw new NotFoundException("Набор данных " + key + " не найден");
+    }
+}
@@ -0,0 +1,233 @@
+package ru.yandex.practicum.filmorate.transfer;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.storage.LikeWriteBehindBuffer;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Потоковая выгрузка каталога в NDJSON. Таблицы читаются курсором «только вперёд»
+ * и сразу пишутся в поток, поэтому расход памяти не зависит от объёма данных.
+ * Имена полей совпадают с форматом {@link BulkImporter}, так что выгрузку можно загрузить обратно.
+ */
+@Slf4j
+@Service
+public class CatalogExporter {
+    private static final int STREAM_FETCH_SIZE = 1000;
+    private static final int IO_BUFFER_SIZE = 64 * 1024;
+    private static final DateTimeFormatter SNAPSHOT_NAME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private static final Map<CatalogEntity, String> QUERIES = Map.of(
+            CatalogEntity.USERS, "SELECT user_id AS \"id\", email AS \"email\", login AS \"login\", " +
+                    "name AS \"name\", birthday AS \"birthday\" FROM users ORDER BY user_id",
+            CatalogEntity.FILMS, "SELECT film_id AS \"id\", name AS \"name\", description AS \"description\", " +
+                    "release_date AS \"releaseDate\", duration AS \"duration\", mpa_id AS \"mpa\" " +
+                    "FROM films ORDER BY film_id",
+            CatalogEntity.FILM_GENRES, "SELECT film_id AS \"filmId\", genre_id AS \"genreId\" " +
+                    "FROM film_genres ORDER BY film_id, genre_id",
+            CatalogEntity.LIKES, "SELECT film_id AS \"filmId\", user_id AS \"userId\" " +
+                    "FROM likes ORDER BY film_id, user_id",
+            CatalogEntity.FRIENDSHIPS, "SELECT user_id AS \"userId\", friend_id AS \"friendId\" " +
+                    "FROM friendships ORDER BY user_id, friend_id");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate snapshotTransaction;
+    private final ObjectMapper objectMapper;
+    private final LikeWriteBehindBuffer likeBuffer;
+    private final Path exportDir;
+
+    public CatalogExporter(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            ObjectMapper objectMapper,
+            LikeWriteBehindBuffer likeBuffer,
+            @Value("${filmorate.export.dir:./db/export}") Path exportDir) {
+        this.jdbcTemplate = jdbcTemplate;
+        // В H2 только SERIALIZABLE (и SNAPSHOT) скрывает строки, вставленные после первого чтения:
+        // на REPEATABLE READ связи могли бы сослаться на пользователя или фильм, которых нет в снимке
+        this.snapshotTransaction = new TransactionTemplate(transactionManager);
+        this.snapshotTransaction.setReadOnly(true);
+        this.snapshotTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_SERIALIZABLE);
+        this.objectMapper = objectMapper;
+        this.likeBuffer = likeBuffer;
+        this.exportDir = exportDir;
+    }
+
+    @Scheduled(cron = "${filmorate.export.cron:-}")
+    public void scheduledExport() {
+        exportSnapshot();
+    }
+
+    /**
+     * Выгружает все наборы данных в отдельный каталог снимка как {@code <набор>.ndjson.gz}.
+     * Все таблицы читаются в одной транзакции только для чтения, поэтому снимок согласован:
+     * связи ссылаются только на выгруженных пользователей и фильмы.
+     * Каждый файл сначала пишется во временный и появляется под своим именем только целиком.
+     */
+    public Path exportSnapshot() {
+        Path snapshotDir = exportDir.resolve(LocalDateTime.now().format(SNAPSHOT_NAME));
+        long startedAt = System.nanoTime();
+        // Сброс идёт в своей транзакции и должен завершиться до первого чтения снимка
+        likeBuffer.flush();
+        try {
+            Files.createDirectories(snapshotDir);
+            snapshotTransaction.executeWithoutResult(status -> {
+                for (CatalogEntity entity : CatalogEntity.values()) {
+                    try {
+                        writeSnapshotFile(snapshotDir, entity);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось записать выгрузку в " + snapshotDir, e);
+        } catch (UncheckedIOException e) {
+            throw new UncheckedIOException("Не удалось записать выгрузку в " + snapshotDir, e.getCause());
+        }
+
+        log.info("Снимок каталога сохранён в {} за {} мс",
+                snapshotDir.toAbsolutePath(), (System.nanoTime() - startedAt) / 1_000_000);
+        return snapshotDir;
+    }
+
+    /**
+     * Пишет набор данных в gzip-сжатый NDJSON. Поток {@code out} не закрывается.
+     */
+    public long exportCompressed(CatalogEntity entity, OutputStream out) throws IOException {
+        flushIfLikes(entity);
+        return writeCompressed(entity, out);
+    }
+
+    /**
+     * Пишет набор данных в NDJSON, по одному объекту на строку. Поток {@code out} не закрывается.
+     */
+    public long export(CatalogEntity entity, OutputStream out) throws IOException {
+        flushIfLikes(entity);
+        return write(entity, out);
+    }
+
+    private void writeSnapshotFile(Path snapshotDir, CatalogEntity entity) throws IOException {
+        Path target = snapshotDir.resolve(entity.getKey() + ".ndjson" + ImportFormat.GZIP_SUFFIX);
+        Path tmp = snapshotDir.resolve(target.getFileName() + ".tmp");
+        long rows;
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tmp), IO_BUFFER_SIZE)) {
+            rows = writeCompressed(entity, out);
+        }
+        Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        log.info("Выгрузка {}: записей {}", entity, rows);
+    }
+
+    private void flushIfLikes(CatalogEntity entity) {
+        if (entity == CatalogEntity.LIKES) {
+            // Несброшенные лайки тоже должны попасть в выгрузку
+            likeBuffer.flush();
+        }
+    }
+
+    private long writeCompressed(CatalogEntity entity, OutputStream out) throws IOException {
+        GZIPOutputStream gzip = new GZIPOutputStream(out, IO_BUFFER_SIZE);
+        long rows = write(entity, gzip);
+        gzip.finish();
+        return rows;
+    }
+
+    private long write(CatalogEntity entity, OutputStream out) throws IOException {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+
+            Long rows = jdbcTemplate.query(connection -> {
+                PreparedStatement ps = connection.prepareStatement(QUERIES.get(entity),
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                ps.setFetchSize(STREAM_FETCH_SIZE);
+                return ps;
+            }, rs -> {
+                List<Column> columns = columns(rs);
+                long count = 0;
+                try {
+                    while (rs.next()) {
+                        writeRow(generator, rs, columns);
+                        count++;
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return count;
+            });
+            return rows != null ? rows : 0;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private List<Column> columns(ResultSet rs) throws SQLException {
+        ResultSetMetaData metaData = rs.getMetaData();
+        List<Column> columns = new ArrayList<>(metaData.getColumnCount());
+        for (int i = 1; i <= metaData.getColumnCount(); i++) {
+            columns.add(new Column(metaData.getColumnLabel(i), metaData.getColumnType(i)));
+        }
+        return columns;
+    }
+
+    private void writeRow(JsonGenerator generator, ResultSet rs, List<Column> columns)
+            throws SQLException, IOException {
+        generator.writeStartObject();
+        for (int i = 0; i < columns.size(); i++) {
+            Column column = columns.get(i);
+            int index = i + 1;
+            switch (column.type()) {
+                case Types.BIGINT, Types.INTEGER, Types.SMALLINT -> {
+                    long value = rs.getLong(index);
+                    if (!rs.wasNull()) {
+                        generator.writeNumberField(column.label(), value);
+                    }
+                }
+                case Types.DATE -> {
+                    Date value = rs.getDate(index);
+                    if (value != null) {
+                        generator.writeStringField(column.label(), value.toLocalDate().toString());
+                    }
+                }
+                default -> {
+                    String value = rs.getString(index);
+                    if (value != null) {
+                        generator.writeStringField(column.label(), value);
+                    }
+                }
+            }
+        }
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+
+    private record Column(String label, int type) {
+    }
+}
@@ -0,0 +1,160 @@
+package ru.yandex.practicum.filmorate.transfer;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Потоковое чтение записей импорта. Строка CSV с заголовком и строка NDJSON
+ * приводятся к одному виду — JSON-объекту, поэтому дальше форматы не различаются.
+ */
+public class ImportRecordReader implements Closeable {
+    private final BufferedReader reader;
+    private final ImportFormat format;
+    private final ObjectMapper objectMapper;
+    private List<String> header;
+    private long recordNumber;
+
+    public ImportRecordReader(InputStream in, ImportFormat format, ObjectMapper objectMapper) {
+        this.reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        this.format = format;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Возвращает следующую запись или {@code null}, если файл закончился.
+     * Повреждённая запись приводит к {@link ValidationException}, после которой чтение можно продолжить.
+     */
+    public JsonNode next() throws IOException {
+        return format == ImportFormat.CSV ? nextCsv() : nextNdjson();
+    }
+
+    public long getRecordNumber() {
+        return recordNumber;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private JsonNode nextNdjson() throws IOException {
+        String line;
+        do {
+            line = reader.readLine();
+            if (line == null) {
+                return null;
+            }
+        } while (line.isBlank());
+
+        recordNumber++;
+        try {
+            JsonNode node = objectMapper.readTree(line);
+            if (!node.isObject()) {
+                throw new ValidationException("Запись " + recordNumber + ": ожидается JSON-объект");
+            }
+            return node;
+        } catch (JsonProcessingException e) {
+            throw new ValidationException("Запись " + recordNumber + ": некорректный JSON");
+        }
+    }
+
+    private JsonNode nextCsv() throws IOException {
+        if (header == null) {
+            header = readCsvRow();
+            if (header == null) {
+                return null;
+            }
+            header.replaceAll(String::trim);
+        }
+
+        List<String> fields = readCsvRow();
+        if (fields == null) {
+            return null;
+        }
+
+        recordNumber++;
+        if (fields.size() != header.size()) {
+            throw new ValidationException("Запись " + recordNumber + ": ожидается полей " + header.size()
+                    + ", получено " + fields.size());
+        }
+
+        ObjectNode node = objectMapper.createObjectNode();
+        for (int i = 0; i < fields.size(); i++) {
+            if (!fields.get(i).isEmpty()) {
+                node.put(header.get(i), fields.get(i));
+            }
+        }
+        return node;
+    }
+
+    private List<String> readCsvRow() throws IOException {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean empty = true;
+
+        int c;
+        while ((c = reader.read()) != -1) {
+            if (quoted) {
+                if (c == '"') {
+                    reader.mark(1);
+                    if (reader.read() == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        reader.reset();
+                    }
+                } else {
+                    field.append((char) c);
+                }
+                continue;
+            }
+
+            switch (c) {
+                case '"' -> {
+                    quoted = true;
+                    empty = false;
+                }
+                case ',' -> {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                    empty = false;
+                }
+                case '\r' -> {
+                }
+                case '\n' -> {
+                    if (empty && field.isEmpty()) {
+                        continue;
+                    }
+                    fields.add(field.toString());
+                    return fields;
+                }
+                default -> {
+                    field.append((char) c);
+                    empty = false;
+                }
+            }
+        }
+
+        if (quoted) {
+            throw new ValidationException("Незакрытая кавычка в конце CSV-файла");
+        }
+        if (empty && field.isEmpty()) {
+            return null;
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
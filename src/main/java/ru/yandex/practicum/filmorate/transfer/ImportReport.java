@@ -0,0 +1,14 @@
+package ru.yandex.practicum.filmorate.transfer;
+
+import java.time.Duration;
+import java.util.List;
+
+public record ImportReport(
+        CatalogEntity entity,
+        long read,
+        long imported,
+        long skipped,
+        long rejected,
+        List<String> errors,
+        Duration elapsed) {
+}
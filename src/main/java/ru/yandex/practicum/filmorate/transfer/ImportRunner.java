@@ -0,0 +1,47 @@
+package ru.yandex.practicum.filmorate.transfer;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Импорт при запуске приложения: {@code --import.users=users.csv --import.films=films.ndjson ...}.
+ * Файлы загружаются в порядке зависимостей независимо от порядка аргументов.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ImportRunner implements ApplicationRunner {
+    private static final String OPTION_PREFIX = "import.";
+
+    private final BulkImporter bulkImporter;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        Map<CatalogEntity, Path> files = new EnumMap<>(CatalogEntity.class);
+        for (CatalogEntity entity : CatalogEntity.values()) {
+            List<String> values = args.getOptionValues(OPTION_PREFIX + entity.getKey());
+            if (values != null && !values.isEmpty()) {
+                files.put(entity, Path.of(values.get(values.size() - 1)));
+            }
+        }
+
+        if (files.isEmpty()) {
+            return;
+        }
+
+        for (ImportReport report : bulkImporter.importFiles(files)) {
+            if (report.rejected() > 0) {
+                log.warn("Импорт {}: отклонено записей {}, первые ошибки: {}",
+                        report.entity(), report.rejected(), report.errors());
+            }
+        }
+    }
+}
@@ -36,7 +36,8 @@ CREATE TABLE IF NOT EXISTS films (
     description VARCHAR(200),
     release_date DATE NOT NULL,
     duration INTEGER NOT NULL CHECK (duration > 0),
-    mpa_id INTEGER REFERENCES mpa_ratings(mpa_id) ON DELETE RESTRICT
+    mpa_id INTEGER REFERENCES mpa_ratings(mpa_id) ON DELETE RESTRICT,
+    likes_count BIGINT NOT NULL DEFAULT 0
 );
 
 -- Создание таблицы связей фильмов и жанров
@@ -63,6 +64,9 @@ CREATE TABLE IF NOT EXISTS friendships (
 
 -- Создание индексов для ускорения поиска
 CREATE INDEX IF NOT EXISTS idx_films_name ON films(name);
+CREATE INDEX IF NOT EXISTS idx_films_likes_count ON films(likes_count DESC, film_id);
+CREATE INDEX IF NOT EXISTS idx_films_release_date ON films(release_date, likes_count DESC);
+CREATE INDEX IF NOT EXISTS idx_film_genres_genre_id ON film_genres(genre_id, film_id);
 CREATE INDEX IF NOT EXISTS idx_users_email ON users(email);
 CREATE INDEX IF NOT EXISTS idx_users_login ON users(login);
 CREATE INDEX IF NOT EXISTS idx_likes_film_id ON likes(film_id);
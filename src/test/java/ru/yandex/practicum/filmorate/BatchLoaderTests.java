@@ -0,0 +1,85 @@
+package ru.yandex.practicum.filmorate;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.context.transaction.TestTransaction;
+import ru.yandex.practicum.filmorate.config.ConcurrencyConfig;
+import ru.yandex.practicum.filmorate.service.BatchLoader;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@JdbcTest
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@Import({BatchLoader.class, ConcurrencyConfig.class})
+@TestPropertySource(properties = {
+        "filmorate.batch.parallel=true",
+        "filmorate.batch.chunk-size=2"
+})
+@Sql(scripts = {"/schema.sql", "/data.sql"}, executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+public class BatchLoaderTests {
+    private static final String GENRES_SQL = "SELECT film_id, genre_id FROM film_genres WHERE film_id = ANY(?)";
+
+    private final BatchLoader batchLoader;
+    private final JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        for (long id = 1; id <= 5; id++) {
+            jdbcTemplate.update("INSERT INTO films (film_id, name, description, release_date, duration, mpa_id) "
+                    + "VALUES (?, 'Film', 'Description', '2000-01-01', 100, 1)", id);
+            jdbcTemplate.update("INSERT INTO film_genres (film_id, genre_id) VALUES (?, 1), (?, ?)", id, id, id + 1);
+        }
+    }
+
+    @Test
+    void shouldSeeUncommittedRowsInsideTransaction() {
+        // Порции в других потоках читали бы через свои соединения и не увидели бы эти строки
+        Map<Long, Set<Long>> genres = batchLoader.loadGrouped(GENRES_SQL, List.of(1L, 2L, 3L, 4L, 5L), TreeSet::new);
+
+        assertEquals(5, genres.size());
+        assertEquals(Set.of(1L, 4L), genres.get(3L));
+        assertEquals(Set.of(1L, 2L), genres.get(1L));
+    }
+
+    @Test
+    void shouldLoadChunksInParallelOutsideTransaction() {
+        TestTransaction.flagForCommit();
+        TestTransaction.end();
+
+        Map<Long, Set<Long>> genres = batchLoader.loadGrouped(GENRES_SQL,
+                List.of(5L, 4L, 4L, 3L, 2L, 1L, 42L), TreeSet::new);
+
+        assertEquals(Set.of(1L, 2L, 3L, 4L, 5L), genres.keySet());
+        assertEquals(Set.of(1L, 5L), genres.get(4L));
+    }
+
+    @Test
+    void shouldReturnEmptyMapForNoIds() {
+        assertTrue(batchLoader.loadGrouped(GENRES_SQL, List.of(), TreeSet::new).isEmpty());
+    }
+
+    @Test
+    void shouldCreateExecutorOnlyInParallelMode() {
+        ApplicationContextRunner runner = new ApplicationContextRunner()
+                .withUserConfiguration(ConcurrencyConfig.class);
+
+        runner.run(context -> assertFalse(context.containsBean("batchLoaderExecutor")));
+        runner.withPropertyValues("filmorate.batch.parallel=true")
+                .run(context -> assertTrue(context.containsBean("batchLoaderExecutor")));
+    }
+}
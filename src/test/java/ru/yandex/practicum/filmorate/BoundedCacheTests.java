@@ -0,0 +1,77 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.cache.BoundedCache;
+import ru.yandex.practicum.filmorate.cache.CacheStats;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BoundedCacheTests {
+
+    @Test
+    void shouldLoadValueOnceAndCountHitsAndMisses() {
+        BoundedCache<Long, String> cache = new BoundedCache<>("test", 10, Duration.ofMinutes(1));
+
+        assertEquals("1", cache.get(1L, String::valueOf));
+        assertEquals("1", cache.get(1L, id -> "другое значение"));
+
+        CacheStats stats = cache.stats();
+        assertEquals(1, stats.hits());
+        assertEquals(1, stats.misses());
+        assertEquals(0.5, stats.getHitRatio());
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsedEntryWhenFull() {
+        BoundedCache<Long, String> cache = new BoundedCache<>("test", 2, Duration.ofMinutes(1));
+        cache.put(1L, "1");
+        cache.put(2L, "2");
+        cache.get(1L);
+        cache.put(3L, "3");
+
+        assertEquals("1", cache.get(1L));
+        assertNull(cache.get(2L));
+        assertEquals(1, cache.stats().evictions());
+    }
+
+    @Test
+    void shouldExpireEntriesAfterTtl() {
+        BoundedCache<Long, String> cache = new BoundedCache<>("test", 10, Duration.ZERO);
+        cache.put(1L, "1");
+
+        assertNull(cache.get(1L));
+        assertEquals(1, cache.stats().expirations());
+    }
+
+    @Test
+    void shouldNotCacheValueLoadedBeforeInvalidation() {
+        BoundedCache<Long, String> cache = new BoundedCache<>("test", 10, Duration.ofMinutes(1));
+
+        cache.get(1L, id -> {
+            cache.invalidate(id);
+            return "устаревшее значение";
+        });
+
+        assertNull(cache.get(1L));
+    }
+
+    @Test
+    void shouldLoadOnlyMissingKeysAndSkipInvalidatedBatch() {
+        BoundedCache<Long, String> cache = new BoundedCache<>("test", 10, Duration.ofMinutes(1));
+        cache.put(1L, "первый");
+
+        Map<Long, String> loaded = cache.getAll(List.of(1L, 2L), ids -> {
+            assertEquals(List.of(2L), ids);
+            cache.invalidate(3L);
+            return Map.of(2L, "второй");
+        });
+
+        assertEquals(Map.of(1L, "первый", 2L, "второй"), loaded);
+        assertNull(cache.get(2L));
+        assertEquals("первый", cache.get(1L));
+    }
+}
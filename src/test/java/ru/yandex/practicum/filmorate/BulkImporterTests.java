@@ -0,0 +1,202 @@
+package ru.yandex.practicum.filmorate;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.config.CacheConfig;
+import ru.yandex.practicum.filmorate.config.ConcurrencyConfig;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.BatchLoader;
+import ru.yandex.practicum.filmorate.service.FilmDataLoader;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.GenreService;
+import ru.yandex.practicum.filmorate.service.MpaService;
+import ru.yandex.practicum.filmorate.service.ReferenceDataRegistry;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.FilmDbStorageImpl;
+import ru.yandex.practicum.filmorate.storage.LikeWriteBehindBuffer;
+import ru.yandex.practicum.filmorate.storage.UserDbStorageImpl;
+import ru.yandex.practicum.filmorate.storage.dao.GenreDao;
+import ru.yandex.practicum.filmorate.storage.dao.MpaDao;
+import ru.yandex.practicum.filmorate.storage.index.AutocompleteIndex;
+import ru.yandex.practicum.filmorate.storage.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.index.FriendGraph;
+import ru.yandex.practicum.filmorate.storage.index.LikeIndex;
+import ru.yandex.practicum.filmorate.storage.index.PopularityLeaderboard;
+import ru.yandex.practicum.filmorate.transfer.BulkImporter;
+import ru.yandex.practicum.filmorate.transfer.CatalogEntity;
+import ru.yandex.practicum.filmorate.transfer.ImportFormat;
+import ru.yandex.practicum.filmorate.transfer.ImportReport;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@JdbcTest
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@Import({
+        BulkImporter.class,
+        FilmService.class,
+        UserService.class,
+        MpaService.class,
+        GenreService.class,
+        ReferenceDataRegistry.class,
+        FilmDataLoader.class,
+        BatchLoader.class,
+        ConcurrencyConfig.class,
+        UserDbStorageImpl.class,
+        FilmDbStorageImpl.class,
+        GenreDao.class,
+        MpaDao.class,
+        PopularityLeaderboard.class,
+        FriendGraph.class,
+        LikeIndex.class,
+        FilmSearchIndex.class,
+        AutocompleteIndex.class,
+        CacheConfig.class,
+        LikeWriteBehindBuffer.class,
+        JacksonAutoConfiguration.class
+})
+@TestPropertySource(properties = "filmorate.import.batch-size=2")
+@Sql(scripts = {"/schema.sql", "/data.sql"}, executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+// Импорт пишет каждый пакет в своей транзакции
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class BulkImporterTests {
+    private final BulkImporter importer;
+    private final UserDbStorageImpl userStorage;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Test
+    void shouldTakeMissingIdsFromIdentityAndMoveItPastExplicitIds() throws IOException {
+        ImportReport report = importCsv(CatalogEntity.USERS, """
+                id,email,login,name,birthday
+                10,first@mail.ru,first,First,1990-01-01
+                ,second@mail.ru,second,,1990-01-01
+                ,third@mail.ru,third,Third,1990-01-01
+                """);
+
+        assertEquals(3, report.imported());
+        assertEquals(List.of(1L, 2L, 10L), ids("SELECT user_id FROM users ORDER BY user_id"));
+        assertEquals("second", jdbcTemplate.queryForObject(
+                "SELECT name FROM users WHERE login = 'second'", String.class));
+
+        User created = userStorage.createUser(User.builder()
+                .email("api@mail.ru")
+                .login("api")
+                .name("Api")
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build());
+        assertEquals(11L, created.getId());
+    }
+
+    @Test
+    void shouldNotCollideWithRowsInsertedOutsideImport() throws IOException {
+        // ID 1 уже выдан автоинкрементом через API: импорт берёт следующие ID у того же счётчика
+        userStorage.createUser(User.builder()
+                .email("api@mail.ru")
+                .login("api")
+                .name("Api")
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build());
+
+        ImportReport report = importCsv(CatalogEntity.USERS, """
+                email,login,name,birthday
+                first@mail.ru,first,First,1990-01-01
+                second@mail.ru,second,Second,1990-01-01
+                """);
+
+        assertEquals(2, report.imported());
+        assertEquals(0, report.rejected());
+        assertEquals(List.of(1L, 2L, 3L), ids("SELECT user_id FROM users ORDER BY user_id"));
+    }
+
+    @Test
+    void shouldInsertFilmGenresForGeneratedFilmIds() throws IOException {
+        ImportReport report = importStream(CatalogEntity.FILMS, ImportFormat.NDJSON, """
+                {"name":"First","description":"Description","releaseDate":"2000-01-01","duration":100,\
+                "mpa":{"id":1},"genres":[{"id":1},{"id":2}]}
+                {"name":"Second","description":"Description","releaseDate":"2001-01-01","duration":90,\
+                "mpa":{"id":2},"genres":[]}
+                """);
+
+        assertEquals(2, report.imported());
+        assertEquals(List.of(1L, 2L), ids("SELECT film_id FROM films ORDER BY film_id"));
+        assertEquals(List.of(1L, 2L), ids("SELECT genre_id FROM film_genres WHERE film_id = 1 ORDER BY genre_id"));
+    }
+
+    @Test
+    void shouldRetryFailedBatchRowByRow() throws IOException {
+        userStorage.createUser(User.builder()
+                .email("old@mail.ru")
+                .login("old")
+                .name("Old")
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build());
+
+        ImportReport report = importCsv(CatalogEntity.USERS, """
+                id,email,login,name,birthday
+                1,duplicate@mail.ru,duplicate,Duplicate,1990-01-01
+                ,new@mail.ru,new,New,1990-01-01
+                """);
+
+        assertEquals(1, report.imported());
+        assertEquals(1, report.rejected());
+        assertEquals(1, report.errors().size());
+        assertEquals(List.of("new", "old"), jdbcTemplate.queryForList(
+                "SELECT login FROM users ORDER BY login", String.class));
+    }
+
+    @Test
+    void shouldSkipDuplicateLikesAndRejectUnknownReferences() throws IOException {
+        jdbcTemplate.update("INSERT INTO users (user_id, email, login, name, birthday) VALUES "
+                + "(1, 'first@mail.ru', 'first', 'First', '1990-01-01'), "
+                + "(2, 'second@mail.ru', 'second', 'Second', '1990-01-01')");
+        jdbcTemplate.update("INSERT INTO films (film_id, name, description, release_date, duration, mpa_id) "
+                + "VALUES (1, 'Film', 'Description', '2000-01-01', 100, 1)");
+
+        ImportReport report = importCsv(CatalogEntity.LIKES, """
+                filmId,userId
+                1,1
+                1,1
+                1,2
+                5,1
+                x,1
+                1,2
+                """);
+
+        assertEquals(6, report.read());
+        assertEquals(2, report.imported());
+        assertEquals(2, report.skipped());
+        assertEquals(2, report.rejected());
+        assertEquals(2L, jdbcTemplate.queryForObject(
+                "SELECT likes_count FROM films WHERE film_id = 1", Long.class));
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM likes", Integer.class));
+    }
+
+    private ImportReport importCsv(CatalogEntity entity, String content) throws IOException {
+        return importStream(entity, ImportFormat.CSV, content);
+    }
+
+    private ImportReport importStream(CatalogEntity entity, ImportFormat format, String content) throws IOException {
+        return importer.importStream(entity, format,
+                new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private List<Long> ids(String sql) {
+        return jdbcTemplate.queryForList(sql, Long.class);
+    }
+}
@@ -0,0 +1,165 @@
+package ru.yandex.practicum.filmorate;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.sql.init.DatabaseInitializationMode;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.cache.BoundedCache;
+import ru.yandex.practicum.filmorate.storage.LikeWriteBehindBuffer;
+import ru.yandex.practicum.filmorate.transfer.CatalogEntity;
+import ru.yandex.practicum.filmorate.transfer.CatalogExporter;
+
+import javax.sql.DataSource;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@JdbcTest
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@Sql(scripts = {"/schema.sql", "/data.sql"}, executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+// Снимок читается в собственной транзакции и должен видеть закоммиченные данные теста
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class CatalogExporterTests {
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path exportDir;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("INSERT INTO users (user_id, email, login, name, birthday) VALUES "
+                + "(1, 'first@mail.ru', 'first', 'First', '1990-01-01'), "
+                + "(2, 'second@mail.ru', 'second', 'Second', '1991-02-03')");
+        jdbcTemplate.update("INSERT INTO films (film_id, name, description, release_date, duration, mpa_id) "
+                + "VALUES (1, 'Film', 'Description', '2000-01-01', 100, 3)");
+        jdbcTemplate.update("INSERT INTO film_genres (film_id, genre_id) VALUES (1, 2)");
+        jdbcTemplate.update("INSERT INTO likes (film_id, user_id) VALUES (1, 1), (1, 2)");
+        jdbcTemplate.update("INSERT INTO friendships (user_id, friend_id, status) VALUES (1, 2, 'CONFIRMED')");
+    }
+
+    @Test
+    void shouldExportRowsWithImportFieldNames() throws IOException {
+        List<JsonNode> films = rows(CatalogEntity.FILMS);
+        assertEquals(1, films.size());
+        JsonNode film = films.get(0);
+        assertEquals(1L, film.get("id").asLong());
+        assertEquals("Film", film.get("name").asText());
+        assertEquals("2000-01-01", film.get("releaseDate").asText());
+        assertEquals(100, film.get("duration").asInt());
+        assertEquals(3L, film.get("mpa").asLong());
+
+        List<JsonNode> users = rows(CatalogEntity.USERS);
+        assertEquals(List.of("first", "second"), users.stream().map(user -> user.get("login").asText()).toList());
+        assertEquals("1991-02-03", users.get(1).get("birthday").asText());
+
+        List<JsonNode> likes = rows(CatalogEntity.LIKES);
+        assertEquals(2, likes.size());
+        assertEquals(2L, likes.get(1).get("userId").asLong());
+    }
+
+    @Test
+    void shouldWriteCompressedFileForEveryDataset() throws IOException {
+        Path snapshot = exporter(jdbcTemplate).exportSnapshot();
+
+        try (Stream<Path> files = Files.list(snapshot)) {
+            assertEquals(List.of("film-genres.ndjson.gz", "films.ndjson.gz", "friendships.ndjson.gz",
+                            "likes.ndjson.gz", "users.ndjson.gz"),
+                    files.map(path -> path.getFileName().toString()).sorted().toList());
+        }
+        List<JsonNode> friendships = readGzip(snapshot.resolve("friendships.ndjson.gz"));
+        assertEquals(1, friendships.size());
+        assertEquals(2L, friendships.get(0).get("friendId").asLong());
+    }
+
+    @Test
+    void shouldExportConsistentSnapshot() throws IOException {
+        // Пользователь и его лайк появляются, когда пользователи уже выгружены, а лайки ещё нет
+        Runnable afterUsersRead = () -> runInOtherThread(() -> {
+            jdbcTemplate.update("INSERT INTO users (user_id, email, login, name, birthday) "
+                    + "VALUES (3, 'third@mail.ru', 'third', 'Third', '1990-01-01')");
+            jdbcTemplate.update("INSERT INTO likes (film_id, user_id) VALUES (1, 3)");
+        });
+        JdbcTemplate reading = new JdbcTemplate(dataSource) {
+            private int queries;
+
+            @Override
+            public <T> T query(PreparedStatementCreator psc, ResultSetExtractor<T> rse) {
+                T result = super.query(psc, rse);
+                // Пользователи выгружаются первыми
+                if (queries++ == 0) {
+                    afterUsersRead.run();
+                }
+                return result;
+            }
+        };
+
+        Path snapshot = exporter(reading).exportSnapshot();
+
+        assertEquals(2, readGzip(snapshot.resolve("users.ndjson.gz")).size());
+        assertEquals(2, readGzip(snapshot.resolve("likes.ndjson.gz")).size());
+        assertEquals(3, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM likes", Integer.class));
+    }
+
+    private CatalogExporter exporter(JdbcTemplate template) {
+        LikeWriteBehindBuffer likeBuffer = new LikeWriteBehindBuffer(jdbcTemplate, null,
+                new BoundedCache<>("films", 10, Duration.ofMinutes(1)), false, 1000, Path.of("unused"), false,
+                DatabaseInitializationMode.NEVER);
+        return new CatalogExporter(template, transactionManager, objectMapper, likeBuffer, exportDir);
+    }
+
+    private List<JsonNode> rows(CatalogEntity entity) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exporter(jdbcTemplate).export(entity, out);
+        List<JsonNode> rows = new ArrayList<>();
+        for (String line : out.toString(StandardCharsets.UTF_8).split("\n")) {
+            rows.add(objectMapper.readTree(line));
+        }
+        return rows;
+    }
+
+    private List<JsonNode> readGzip(Path file) throws IOException {
+        List<JsonNode> rows = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                rows.add(objectMapper.readTree(line));
+            }
+        }
+        return rows;
+    }
+
+    private static void runInOtherThread(Runnable task) {
+        // Свой поток — своё соединение, а не соединение транзакции снимка
+        CompletableFuture.runAsync(task).join();
+    }
+}
@@ -0,0 +1,37 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.config.DataSourceTuningPostProcessor;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class DataSourceTuningTests {
+
+    @Test
+    void shouldSizePoolByCores() {
+        assertEquals(16, DataSourceTuningPostProcessor.poolSize(8, 2));
+        assertEquals(2, DataSourceTuningPostProcessor.poolSize(1, 1));
+        assertEquals(2, DataSourceTuningPostProcessor.poolSize(1, 0));
+    }
+
+    @Test
+    void shouldTakeCacheSizeFromHeap() {
+        assertEquals(209_715, DataSourceTuningPostProcessor.h2CacheSizeKb(1024L * 1024 * 1024, 20));
+        assertEquals(0, DataSourceTuningPostProcessor.h2CacheSizeKb(1024L * 1024 * 1024, 0));
+    }
+
+    @Test
+    void shouldAppendOnlyMissingH2Settings() {
+        Map<String, Object> settings = new LinkedHashMap<>();
+        settings.put("CACHE_SIZE", 65536);
+        settings.put("QUERY_CACHE_SIZE", 64);
+
+        assertEquals("jdbc:h2:file:./db/filmorate;CACHE_SIZE=65536;QUERY_CACHE_SIZE=64",
+                DataSourceTuningPostProcessor.withSettings("jdbc:h2:file:./db/filmorate", settings));
+        assertEquals("jdbc:h2:mem:test;cache_size=1024;QUERY_CACHE_SIZE=64",
+                DataSourceTuningPostProcessor.withSettings("jdbc:h2:mem:test;cache_size=1024", settings));
+    }
+}
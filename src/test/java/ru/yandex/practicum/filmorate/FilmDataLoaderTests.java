@@ -0,0 +1,163 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.service.FilmDataLoader;
+import ru.yandex.practicum.filmorate.service.QueryCancellation;
+
+import java.lang.reflect.Proxy;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FilmDataLoaderTests {
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void shouldLoadGenresAndLikesConcurrently() {
+        // Каждая загрузка ждёт, пока начнётся вторая: последовательно они не завершатся
+        CyclicBarrier bothStarted = new CyclicBarrier(2);
+        FilmDataLoader loader = loader(10_000,
+                () -> awaitAndReturn(bothStarted, Map.of(1L, Set.of(2L))),
+                () -> awaitAndReturn(bothStarted, Map.of(1L, Set.of(5L, 6L))));
+
+        FilmDataLoader.FilmRelations relations = loader.loadRelations(List.of(1L));
+
+        assertEquals(Map.of(1L, Set.of(2L)), relations.genresByFilm());
+        assertEquals(Map.of(1L, Set.of(5L, 6L)), relations.likesByFilm());
+    }
+
+    @Test
+    void shouldFailFastWithoutWaitingForSlowerLoad() {
+        // Медленная загрузка не завершится, пока тест её не отпустит, а тайм-аут дал бы другую ошибку
+        CountDownLatch release = new CountDownLatch(1);
+        FilmDataLoader loader = loader(10_000,
+                () -> {
+                    throw new IllegalArgumentException("жанры недоступны");
+                },
+                () -> awaitAndReturn(release, Map.of()));
+
+        try {
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                    () -> loader.loadRelations(List.of(1L)));
+            assertEquals("жанры недоступны", e.getMessage());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void shouldFailOnTimeout() {
+        CountDownLatch release = new CountDownLatch(1);
+        FilmDataLoader loader = loader(100,
+                () -> awaitAndReturn(release, Map.of()),
+                Map::of);
+
+        try {
+            assertThrows(IllegalStateException.class, () -> loader.loadRelations(List.of(1L)));
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void shouldCancelRunningQueryOnTimeout() throws Exception {
+        CountDownLatch cancelled = new CountDownLatch(1);
+        AtomicInteger queryTimeout = new AtomicInteger();
+        Statement statement = statement(cancelled, queryTimeout);
+        FilmDataLoader loader = loader(1000,
+                () -> {
+                    try {
+                        QueryCancellation.current().register(statement);
+                    } catch (SQLException e) {
+                        throw new IllegalStateException(e);
+                    }
+                    return awaitAndReturn(cancelled, Map.of());
+                },
+                Map::of);
+
+        assertThrows(IllegalStateException.class, () -> loader.loadRelations(List.of(1L)));
+        assertTrue(cancelled.await(5, TimeUnit.SECONDS), "Запрос должен быть отменён через Statement.cancel()");
+        assertEquals(1, queryTimeout.get());
+    }
+
+    @Test
+    void shouldNotStartQueriesAfterCancellation() {
+        QueryCancellation cancellation = new QueryCancellation(10_000);
+        cancellation.cancel();
+
+        assertThrows(CancellationException.class,
+                () -> cancellation.register(statement(new CountDownLatch(1), new AtomicInteger())));
+    }
+
+    private FilmDataLoader loader(long timeoutMs, Supplier<Map<Long, Set<Long>>> genres,
+                                  Supplier<Map<Long, Set<Long>>> likes) {
+        return new FilmDataLoader(null, null, executor, true, timeoutMs) {
+            @Override
+            public Map<Long, Set<Long>> loadGenresForFilms(List<Long> filmIds) {
+                return genres.get();
+            }
+
+            @Override
+            public Map<Long, Set<Long>> loadLikesForFilms(List<Long> filmIds) {
+                return likes.get();
+            }
+        };
+    }
+
+    private static Map<Long, Set<Long>> awaitAndReturn(CyclicBarrier barrier, Map<Long, Set<Long>> result) {
+        try {
+            barrier.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException | BrokenBarrierException | TimeoutException e) {
+            throw new IllegalStateException("Загрузки не выполнялись одновременно", e);
+        }
+        return result;
+    }
+
+    private static Map<Long, Set<Long>> awaitAndReturn(CountDownLatch latch, Map<Long, Set<Long>> result) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return result;
+    }
+
+    private static Statement statement(CountDownLatch cancelled, AtomicInteger queryTimeout) {
+        return (Statement) Proxy.newProxyInstance(Statement.class.getClassLoader(), new Class<?>[]{Statement.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "cancel" -> cancelled.countDown();
+                        case "setQueryTimeout" -> queryTimeout.set((Integer) args[0]);
+                        case "hashCode" -> {
+                            return System.identityHashCode(proxy);
+                        }
+                        case "equals" -> {
+                            return proxy == args[0];
+                        }
+                        default -> {
+                        }
+                    }
+                    return null;
+                });
+    }
+}
@@ -0,0 +1,67 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.SearchField;
+import ru.yandex.practicum.filmorate.storage.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.index.PopularityLeaderboard;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FilmSearchIndexTests {
+    private static final Set<SearchField> ALL_FIELDS = EnumSet.allOf(SearchField.class);
+
+    private PopularityLeaderboard leaderboard;
+    private FilmSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        leaderboard = new PopularityLeaderboard(null, null);
+        index = new FilmSearchIndex(null, leaderboard, 1000);
+        index.indexFilm(1L, "Ёлки", "Новогодняя комедия");
+        index.indexFilm(2L, "Иван Васильевич меняет профессию", "Комедия о машине времени");
+        index.indexFilm(3L, "Машина времени", "Фантастика по Уэллсу");
+        index.indexFilm(4L, "Комедианты", "Драма");
+    }
+
+    @Test
+    void shouldTokenizeCyrillicCaseInsensitively() {
+        assertEquals(List.of("елки", "и", "палки", "2"), FilmSearchIndex.tokenize("ЁЛКИ и палки-2, ёлки!"));
+    }
+
+    @Test
+    void shouldMatchByPrefixAndIgnoreYo() {
+        assertEquals(List.of(1L), index.search("елк", ALL_FIELDS, 10));
+        assertEquals(List.of(4L, 1L, 2L), index.search("комед", ALL_FIELDS, 10));
+    }
+
+    @Test
+    void shouldRequireAllWordsAndRankTitleAboveDescription() {
+        assertEquals(List.of(3L, 2L), index.search("машин времени", ALL_FIELDS, 10));
+        assertEquals(List.of(3L), index.search("машин времени", EnumSet.of(SearchField.TITLE), 10));
+        assertEquals(List.of(), index.search("машин драма", ALL_FIELDS, 10));
+    }
+
+    @Test
+    void shouldBreakTiesByLikes() {
+        leaderboard.registerFilm(1L, 2000, new long[0]);
+        leaderboard.registerFilm(2L, 2000, new long[0]);
+        leaderboard.increment(2L);
+
+        assertEquals(List.of(2L, 1L), index.search("комедия", EnumSet.of(SearchField.DESCRIPTION), 10));
+        assertEquals(List.of(2L), index.search("комедия", EnumSet.of(SearchField.DESCRIPTION), 1));
+    }
+
+    @Test
+    void shouldReindexUpdatedAndRemovedFilms() {
+        index.indexFilm(3L, "Назад в будущее", "Фантастика");
+        index.removeFilm(2L);
+
+        assertEquals(List.of(), index.search("машин", ALL_FIELDS, 10));
+        assertEquals(List.of(3L), index.search("будущее", ALL_FIELDS, 10));
+    }
+}
@@ -7,13 +7,27 @@ import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabas
 import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
 import org.springframework.context.annotation.Import;
 import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.context.transaction.TestTransaction;
+import ru.yandex.practicum.filmorate.cache.BoundedCache;
+import ru.yandex.practicum.filmorate.config.CacheConfig;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.FilmDbStorageImpl;
+import ru.yandex.practicum.filmorate.storage.LikeWriteBehindBuffer;
 import ru.yandex.practicum.filmorate.storage.UserDbStorageImpl;
 import ru.yandex.practicum.filmorate.storage.dao.GenreDao;
 import ru.yandex.practicum.filmorate.storage.dao.MpaDao;
+import ru.yandex.practicum.filmorate.storage.index.AutocompleteIndex;
+import ru.yandex.practicum.filmorate.storage.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.index.FriendGraph;
+import ru.yandex.practicum.filmorate.storage.index.LikeIndex;
+import ru.yandex.practicum.filmorate.storage.index.PopularityLeaderboard;
 
 import java.time.LocalDate;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -25,11 +39,22 @@ import static org.assertj.core.api.Assertions.assertThat;
 		UserDbStorageImpl.class,
 		FilmDbStorageImpl.class,
 		GenreDao.class,
-		MpaDao.class
+		MpaDao.class,
+		PopularityLeaderboard.class,
+		FriendGraph.class,
+		LikeIndex.class,
+		FilmSearchIndex.class,
+		AutocompleteIndex.class,
+		CacheConfig.class,
+		LikeWriteBehindBuffer.class
 })
 @Sql(scripts = {"/schema.sql", "/data.sql"}, executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
 class FilmorateApplicationTests {
 	private final UserDbStorageImpl userStorage;
+	private final FilmDbStorageImpl filmStorage;
+	private final PopularityLeaderboard popularityLeaderboard;
+	private final BoundedCache<Long, Film> filmCache;
+	private final BoundedCache<Long, User> userCache;
 
 	@Test
 	void testCreateAndFindUser() {
@@ -92,4 +117,110 @@ class FilmorateApplicationTests {
 		assertThat(userStorage.getAllUsers()).hasSize(2);
 	}
 
+	@Test
+	void testDeletedUserIsRemovedFromCache() {
+		User user = userStorage.createUser(User.builder()
+				.email("deleted@mail.com")
+				.login("deleted")
+				.birthday(LocalDate.of(1990, 1, 1))
+				.build());
+		userCache.put(user.getId(), user);
+
+		userStorage.deleteUser(user.getId());
+		TestTransaction.flagForCommit();
+		TestTransaction.end();
+
+		assertThat(userCache.get(user.getId())).isNull();
+		assertThat(userStorage.existsById(user.getId())).isFalse();
+	}
+
+	@Test
+	void testRolledBackUserIsNotKnown() {
+		User user = User.builder()
+				.email("rollback@mail.com")
+				.login("rollback")
+				.birthday(LocalDate.of(1990, 1, 1))
+				.build();
+
+		Long userId = userStorage.createUser(user).getId();
+		assertThat(userStorage.existsById(userId)).isTrue();
+
+		TestTransaction.flagForRollback();
+		TestTransaction.end();
+
+		assertThat(userStorage.existsById(userId)).isFalse();
+		assertThat(userStorage.findExistingIds(List.of(userId))).isEmpty();
+	}
+
+	@Test
+	void testCachedFilmIsNotChangedThroughReturnedCopy() {
+		Film film = Film.builder()
+				.name("Cached")
+				.description("Description")
+				.releaseDate(LocalDate.of(2000, 1, 1))
+				.duration(100)
+				.mpa(new Mpa(1L, null))
+				.genres(new LinkedHashSet<>(List.of(new Genre(1L, null))))
+				.build();
+		Long filmId = filmStorage.createFilm(film).getId();
+
+		Film first = filmStorage.getFilmById(filmId).orElseThrow();
+		first.getGenres().clear();
+		first.getLikes().add(42L);
+		first.setName("Changed");
+
+		Film second = filmStorage.getFilmById(filmId).orElseThrow();
+		assertThat(second).isNotSameAs(first);
+		assertThat(second.getName()).isEqualTo("Cached");
+		assertThat(second.getGenres()).extracting(Genre::getId).containsExactly(1L);
+		assertThat(second.getLikes()).isEmpty();
+	}
+
+	@Test
+	void testUpdateFilmReturnsLikesWithoutFillingCache() {
+		User user = userStorage.createUser(User.builder()
+				.email("fan@mail.com")
+				.login("fan")
+				.birthday(LocalDate.of(1990, 1, 1))
+				.build());
+		Film film = filmStorage.createFilm(Film.builder()
+				.name("Before")
+				.description("Description")
+				.releaseDate(LocalDate.of(2000, 1, 1))
+				.duration(100)
+				.mpa(new Mpa(1L, null))
+				.genres(new LinkedHashSet<>())
+				.build());
+		filmStorage.addLike(film.getId(), user.getId());
+
+		film.setName("After");
+		film.setGenres(new LinkedHashSet<>(List.of(new Genre(2L, null))));
+		Film updated = filmStorage.updateFilm(film);
+
+		assertThat(updated.getName()).isEqualTo("After");
+		assertThat(updated.getGenres()).extracting(Genre::getId).containsExactly(2L);
+		assertThat(updated.getLikes()).containsExactly(user.getId());
+		assertThat(filmCache.get(film.getId())).isNull();
+	}
+
+	@Test
+	void testRolledBackFilmIsNotRanked() {
+		Film film = Film.builder()
+				.name("Rollback")
+				.description("Description")
+				.releaseDate(LocalDate.of(2000, 1, 1))
+				.duration(100)
+				.mpa(new Mpa(1L, null))
+				.genres(new LinkedHashSet<>())
+				.build();
+
+		Long filmId = filmStorage.createFilm(film).getId();
+		assertThat(popularityLeaderboard.top(100)).doesNotContain(filmId);
+
+		TestTransaction.flagForRollback();
+		TestTransaction.end();
+
+		assertThat(popularityLeaderboard.top(100)).doesNotContain(filmId);
+	}
+
 }
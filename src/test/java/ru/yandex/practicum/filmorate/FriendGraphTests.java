@@ -0,0 +1,112 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import ru.yandex.practicum.filmorate.storage.index.FriendGraph;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FriendGraphTests {
+    private FriendGraph graph;
+
+    @BeforeEach
+    void setUp() {
+        graph = new FriendGraph(null, 500, 500);
+        graph.addFriend(1L, 5L);
+        graph.addFriend(1L, 2L);
+        graph.addFriend(1L, 9L);
+        graph.addFriend(3L, 9L);
+        graph.addFriend(3L, 2L);
+        graph.addFriend(3L, 4L);
+    }
+
+    @Test
+    void shouldKeepFriendsSorted() {
+        assertArrayEquals(new long[]{2L, 5L, 9L}, graph.friends(1L));
+        assertEquals(3, graph.friendCount(1L));
+    }
+
+    @Test
+    void shouldIntersectFriendLists() {
+        assertArrayEquals(new long[]{2L, 9L}, graph.commonFriends(1L, 3L));
+        assertArrayEquals(new long[0], graph.commonFriends(1L, 7L));
+    }
+
+    @Test
+    void shouldIgnoreDuplicateFriendAndRemoveFriend() {
+        graph.addFriend(1L, 5L);
+        graph.removeFriend(1L, 2L);
+        graph.removeFriend(1L, 42L);
+
+        assertArrayEquals(new long[]{5L, 9L}, graph.friends(1L));
+        assertFalse(graph.areFriends(1L, 2L));
+        assertTrue(graph.areFriends(1L, 9L));
+    }
+
+    @Test
+    void shouldKeepFriendshipOneSided() {
+        assertTrue(graph.areFriends(1L, 2L));
+        assertFalse(graph.areFriends(2L, 1L));
+        assertEquals(0, graph.friendCount(2L));
+    }
+
+    @Test
+    void shouldRankSuggestionsByMutualFriends() {
+        graph.addFriend(2L, 7L);
+        graph.addFriend(9L, 7L);
+        graph.addFriend(9L, 3L);
+        graph.addFriend(5L, 8L);
+        graph.addFriend(2L, 1L);
+
+        assertArrayEquals(new long[]{7L, 3L, 8L}, graph.suggestions(1L, 10));
+        assertArrayEquals(new long[]{7L}, graph.suggestions(1L, 1));
+    }
+
+    @Test
+    void shouldLimitScannedFriendsOfFriend() {
+        FriendGraph capped = new FriendGraph(null, 10, 1);
+        capped.addFriend(1L, 2L);
+        capped.addFriend(2L, 3L);
+        capped.addFriend(2L, 4L);
+
+        assertArrayEquals(new long[]{3L}, capped.suggestions(1L, 10));
+    }
+
+    @Test
+    void shouldReadLoadedSnapshotAndKeepChangeMadeDuringReload() {
+        long[][] rows = {{1L, 2L}, {1L, 5L}, {3L, 4L}};
+        FriendGraph[] loaded = new FriendGraph[1];
+        JdbcTemplate jdbcTemplate = new JdbcTemplate() {
+            @Override
+            public void query(String sql, RowCallbackHandler rch) {
+                try {
+                    for (long[] row : rows) {
+                        ResultSet rs = (ResultSet) Proxy.newProxyInstance(getClass().getClassLoader(),
+                                new Class<?>[]{ResultSet.class},
+                                (proxy, method, args) -> "user_id".equals(args[0]) ? row[0] : row[1]);
+                        rch.processRow(rs);
+                    }
+                } catch (SQLException e) {
+                    throw new IllegalStateException(e);
+                }
+                // Дружба, закоммиченная после чтения таблицы, но до замены снимка
+                loaded[0].addFriend(1L, 7L);
+            }
+        };
+        loaded[0] = new FriendGraph(jdbcTemplate, 500, 500);
+
+        loaded[0].reload();
+
+        assertArrayEquals(new long[]{2L, 5L, 7L}, loaded[0].friends(1L));
+        assertEquals(1, loaded[0].friendCount(3L));
+        assertTrue(loaded[0].areFriends(3L, 4L));
+        assertFalse(loaded[0].areFriends(3L, 2L));
+        assertEquals(0, loaded[0].friendCount(2L));
+    }
+}
@@ -0,0 +1,42 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.storage.index.IdBitmap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IdBitmapTests {
+
+    @Test
+    void shouldContainAddedIdsAcrossContainers() {
+        IdBitmap bitmap = new IdBitmap();
+        bitmap.add(1L);
+        bitmap.add(65_536L);
+        bitmap.add(10_000_000_000L);
+
+        assertTrue(bitmap.contains(1L));
+        assertTrue(bitmap.contains(65_536L));
+        assertTrue(bitmap.contains(10_000_000_000L));
+        assertFalse(bitmap.contains(2L));
+        assertFalse(bitmap.contains(65_537L));
+    }
+
+    @Test
+    void shouldForgetRemovedIdOnly() {
+        IdBitmap bitmap = new IdBitmap();
+        bitmap.add(63L);
+        bitmap.add(64L);
+        bitmap.remove(63L);
+
+        assertFalse(bitmap.contains(63L));
+        assertTrue(bitmap.contains(64L));
+    }
+
+    @Test
+    void shouldNotContainNegativeIds() {
+        IdBitmap bitmap = new IdBitmap();
+
+        assertFalse(bitmap.contains(-1L));
+        assertThrows(IllegalArgumentException.class, () -> bitmap.add(-1L));
+    }
+}
@@ -0,0 +1,75 @@
+package ru.yandex.practicum.filmorate;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.transfer.ImportFormat;
+import ru.yandex.practicum.filmorate.transfer.ImportRecordReader;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ImportRecordReaderTests {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void shouldReadCsvRecordsByHeader() throws IOException {
+        ImportRecordReader reader = reader(ImportFormat.CSV,
+                "name,description,duration\r\nFilm,\"Quoted, with \"\"comma\"\"\",120\r\n");
+
+        JsonNode record = reader.next();
+
+        assertEquals("Film", record.get("name").asText());
+        assertEquals("Quoted, with \"comma\"", record.get("description").asText());
+        assertEquals("120", record.get("duration").asText());
+        assertNull(reader.next());
+    }
+
+    @Test
+    void shouldReadMultilineQuotedCsvField() throws IOException {
+        ImportRecordReader reader = reader(ImportFormat.CSV, "name,description\nFilm,\"line one\nline two\"");
+
+        assertEquals("line one\nline two", reader.next().get("description").asText());
+        assertNull(reader.next());
+    }
+
+    @Test
+    void shouldSkipBlankLinesAndOmitEmptyCsvFields() throws IOException {
+        ImportRecordReader reader = reader(ImportFormat.CSV, "login,name\n\nuser,\n");
+
+        JsonNode record = reader.next();
+
+        assertEquals("user", record.get("login").asText());
+        assertFalse(record.has("name"));
+        assertNull(reader.next());
+    }
+
+    @Test
+    void shouldRejectCsvRecordWithWrongFieldCountAndContinue() throws IOException {
+        ImportRecordReader reader = reader(ImportFormat.CSV, "filmId,userId\n1\n2,3\n");
+
+        assertThrows(ValidationException.class, reader::next);
+        assertEquals("3", reader.next().get("userId").asText());
+        assertEquals(2, reader.getRecordNumber());
+    }
+
+    @Test
+    void shouldReadNdjsonAndRejectMalformedLine() throws IOException {
+        ImportRecordReader reader = reader(ImportFormat.NDJSON,
+                "{\"filmId\":1,\"userId\":2}\n\n{broken\n{\"filmId\":3,\"userId\":4}\n");
+
+        assertEquals(1, reader.next().get("filmId").asLong());
+        assertThrows(ValidationException.class, reader::next);
+        assertEquals(3, reader.next().get("filmId").asLong());
+        assertNull(reader.next());
+    }
+
+    private ImportRecordReader reader(ImportFormat format, String content) {
+        return new ImportRecordReader(
+                new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)), format, objectMapper);
+    }
+}
@@ -0,0 +1,112 @@
+package ru.yandex.practicum.filmorate;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.sql.init.DatabaseInitializationMode;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.cache.BoundedCache;
+import ru.yandex.practicum.filmorate.storage.LikeWriteBehindBuffer;
+import ru.yandex.practicum.filmorate.storage.index.LikeIndex;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@JdbcTest
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@Sql(scripts = {"/schema.sql", "/data.sql"}, executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+// Сброс буфера пишет в отдельной транзакции, а перезагрузка должна видеть его результат
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class LikeIndexReloadTests {
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+
+    @TempDir
+    Path journalDir;
+
+    private Runnable duringRead = () -> {
+    };
+    private LikeWriteBehindBuffer likeBuffer;
+    private LikeIndex likeIndex;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        jdbcTemplate.update("INSERT INTO users (user_id, email, login, name, birthday) VALUES "
+                + "(1, 'first@mail.ru', 'first', 'First', '1990-01-01'), "
+                + "(2, 'second@mail.ru', 'second', 'Second', '1990-01-01')");
+        jdbcTemplate.update("INSERT INTO films (film_id, name, description, release_date, duration, mpa_id) "
+                + "VALUES (1, 'Film', 'Description', '2000-01-01', 100, 1)");
+        jdbcTemplate.update("INSERT INTO likes (film_id, user_id) VALUES (1, 2)");
+
+        // Позволяет выполнить сброс буфера между первым чтением лайков и подменой снимка
+        JdbcTemplate reading = new JdbcTemplate(dataSource) {
+            @Override
+            public void query(String sql, RowCallbackHandler rch) {
+                super.query(sql, rch);
+                if (sql.startsWith("SELECT user_id, film_id FROM likes")) {
+                    duringRead.run();
+                }
+            }
+        };
+        likeBuffer = new LikeWriteBehindBuffer(jdbcTemplate, transactionManager,
+                new BoundedCache<>("films", 10, Duration.ofMinutes(1)), true, 1000, journalDir, false,
+                DatabaseInitializationMode.NEVER);
+        likeBuffer.start();
+        likeIndex = new LikeIndex(reading, likeBuffer, 500, 1000, 50);
+        likeIndex.warmUp();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        likeBuffer.stop();
+    }
+
+    @Test
+    void shouldKeepBufferedLikeFlushedDuringReload() {
+        likeBuffer.addLike(1L, 1L);
+        likeIndex.addLike(1L, 1L);
+        CompletableFuture<?>[] flush = new CompletableFuture<?>[1];
+        // Сброс из другого потока: он не должен зафиксироваться, пока перезагрузка читает лайки
+        duringRead = () -> flush[0] = CompletableFuture.runAsync(likeBuffer::flush);
+
+        likeIndex.reload();
+        flush[0].join();
+
+        assertFalse(likeBuffer.hasPending());
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM likes", Integer.class));
+        assertArrayEquals(new long[]{1L, 2L}, likeIndex.usersWhoLiked(1L));
+        assertArrayEquals(new long[]{1L}, likeIndex.filmsLikedBy(1L));
+    }
+
+    @Test
+    void shouldApplyChangeMadeDuringReloadOverPendingLike() {
+        likeBuffer.addLike(1L, 1L);
+        likeIndex.addLike(1L, 1L);
+        duringRead = () -> {
+            likeBuffer.removeLike(1L, 1L);
+            likeIndex.removeLike(1L, 1L);
+        };
+
+        likeIndex.reload();
+
+        assertArrayEquals(new long[]{2L}, likeIndex.usersWhoLiked(1L));
+        assertArrayEquals(new long[0], likeIndex.filmsLikedBy(1L));
+    }
+}
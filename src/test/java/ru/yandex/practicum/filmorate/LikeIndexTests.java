@@ -0,0 +1,67 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.storage.index.LikeIndex;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LikeIndexTests {
+    private LikeIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new LikeIndex(null, null, 500, 1000, 50);
+        like(1L, 10L, 11L, 12L);
+        like(2L, 10L, 11L, 13L, 14L);
+        like(3L, 10L, 15L);
+        like(4L, 20L, 21L);
+    }
+
+    @Test
+    void shouldIndexLikesInBothDirections() {
+        assertArrayEquals(new long[]{10L, 11L, 12L}, index.filmsLikedBy(1L));
+        assertArrayEquals(new long[]{1L, 2L, 3L}, index.usersWhoLiked(10L));
+    }
+
+    @Test
+    void shouldRankFilmsByNeighbourOverlap() {
+        // Пользователь 2 совпадает с 1 по двум фильмам, пользователь 3 — по одному
+        assertArrayEquals(new long[]{13L, 14L, 15L}, index.recommend(1L, 10));
+        assertArrayEquals(new long[]{13L}, index.recommend(1L, 1));
+    }
+
+    @Test
+    void shouldNotRecommendAlreadyLikedFilms() {
+        index.addLike(13L, 1L);
+
+        assertArrayEquals(new long[]{14L, 15L}, index.recommend(1L, 10));
+    }
+
+    @Test
+    void shouldReturnNothingWithoutOverlap() {
+        assertArrayEquals(new long[0], index.recommend(4L, 10));
+        assertArrayEquals(new long[0], index.recommend(99L, 10));
+    }
+
+    @Test
+    void shouldRemoveLikesFilmsAndUsers() {
+        index.removeLike(11L, 2L);
+        assertArrayEquals(new long[]{13L, 14L, 15L}, index.recommend(1L, 10));
+
+        index.removeUser(2L);
+        assertArrayEquals(new long[0], index.filmsLikedBy(2L));
+        assertArrayEquals(new long[]{1L, 3L}, index.usersWhoLiked(10L));
+        assertArrayEquals(new long[]{15L}, index.recommend(1L, 10));
+
+        index.removeFilm(15L);
+        assertArrayEquals(new long[]{10L}, index.filmsLikedBy(3L));
+        assertArrayEquals(new long[0], index.recommend(1L, 10));
+    }
+
+    private void like(long userId, long... filmIds) {
+        for (long filmId : filmIds) {
+            index.addLike(filmId, userId);
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package ru.yandex.practicum.filmorate;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.sql.init.DatabaseInitializationMode;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.cache.BoundedCache;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.LikeWriteBehindBuffer;
+
+import javax.sql.DataSource;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@JdbcTest
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@Sql(scripts = {"/schema.sql", "/data.sql"}, executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+// Сброс пишет в отдельной транзакции и должен видеть данные теста
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class LikeWriteBehindBufferTests {
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+
+    @TempDir
+    Path journalDir;
+
+    private final List<LikeWriteBehindBuffer> buffers = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("INSERT INTO users (user_id, email, login, name, birthday) VALUES "
+                + "(1, 'first@mail.ru', 'first', 'First', '1990-01-01'), "
+                + "(2, 'second@mail.ru', 'second', 'Second', '1990-01-01')");
+        jdbcTemplate.update("INSERT INTO films (film_id, name, description, release_date, duration, mpa_id) VALUES "
+                + "(1, 'First', 'Description', '2000-01-01', 100, 1), "
+                + "(2, 'Second', 'Description', '2000-01-01', 100, 1)");
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        for (LikeWriteBehindBuffer buffer : buffers) {
+            buffer.stop();
+        }
+    }
+
+    @Test
+    void shouldReplayJournalAfterCrash() throws Exception {
+        LikeWriteBehindBuffer crashed = startBuffer();
+        crashed.addLike(1L, 1L);
+        crashed.addLike(1L, 2L);
+        crashed.addLike(2L, 1L);
+        crashed.removeLike(2L, 1L);
+        crashed.flush();
+        crashed.removeLike(1L, 2L);
+        crashed.addLike(2L, 2L);
+        assertEquals(2, countLikes(), "До сброса в БД только первый пакет");
+
+        // Приложение упало, не сбросив буфер: новый экземпляр поднимает изменения из журнала
+        buffers.remove(crashed);
+        startBuffer();
+
+        assertEquals(1, countLikes(1L));
+        assertEquals(1, countLikes(2L));
+        assertEquals(1L, likesCount(1L));
+        assertEquals(1L, likesCount(2L));
+        assertEquals(List.of("current.journal"), journalFiles());
+    }
+
+    @Test
+    void shouldNotReplayJournalIntoRecreatedSchema() throws Exception {
+        LikeWriteBehindBuffer crashed = startBuffer();
+        crashed.addLike(1L, 1L);
+        buffers.remove(crashed);
+
+        // schema.sql пересоздал таблицы: фильмы и пользователи из журнала уже другие
+        startBuffer(DatabaseInitializationMode.ALWAYS);
+
+        assertEquals(0, countLikes());
+        assertEquals(List.of("current.journal", "current.journal.discarded"), journalFiles());
+    }
+
+    @Test
+    void shouldCancelOppositeChanges() {
+        LikeWriteBehindBuffer buffer = startBuffer();
+        buffer.addLike(1L, 1L);
+        buffer.removeLike(1L, 1L);
+
+        assertFalse(buffer.hasPending());
+        assertThrows(NotFoundException.class, () -> buffer.removeLike(1L, 1L));
+
+        buffer.flush();
+        assertEquals(0, countLikes());
+        assertEquals(0L, likesCount(1L));
+    }
+
+    @Test
+    void shouldRejectRepeatedLikeBeforeFlush() {
+        LikeWriteBehindBuffer buffer = startBuffer();
+        buffer.addLike(1L, 1L);
+
+        assertThrows(NotFoundException.class, () -> buffer.addLike(1L, 1L));
+    }
+
+    @Test
+    void shouldDropChangesRejectedByDatabase() throws Exception {
+        LikeWriteBehindBuffer buffer = startBuffer();
+        buffer.addLike(1L, 1L);
+        buffer.addLike(2L, 1L);
+        buffer.addLike(2L, 2L);
+        jdbcTemplate.update("DELETE FROM films WHERE film_id = 2");
+
+        buffer.flush();
+
+        assertFalse(buffer.hasPending(), "Отвергнутые изменения не должны сбрасываться повторно");
+        assertEquals(1, countLikes());
+        assertEquals(1L, likesCount(1L));
+        assertEquals(List.of("current.journal"), journalFiles());
+
+        buffer.addLike(1L, 2L);
+        buffer.flush();
+        assertEquals(2L, likesCount(1L));
+    }
+
+    @Test
+    void shouldReportEveryChangeOnceDuringConsistentRead() {
+        LikeWriteBehindBuffer buffer = startBuffer();
+        buffer.addLike(1L, 1L);
+        buffer.flush();
+        buffer.addLike(1L, 2L);
+
+        long[] pendingDelta = new long[1];
+        long[] storedLikes = new long[1];
+        buffer.readConsistently(() -> storedLikes[0] = likesCount(1L),
+                (filmId, userId, add) -> pendingDelta[0] += add ? 1 : -1);
+
+        assertEquals(1L, storedLikes[0]);
+        assertEquals(1L, pendingDelta[0]);
+    }
+
+    @Test
+    void shouldKeepFlushedChangesVisibleToReadOverlappingFlush() throws Exception {
+        CountDownLatch flushWriting = new CountDownLatch(1);
+        CountDownLatch readStarted = new CountDownLatch(1);
+        // Сброс уже снял изменения из буфера и ждёт, пока чтение начнётся, чтобы только потом записать их
+        JdbcTemplate flushing = new JdbcTemplate(dataSource) {
+            @Override
+            public <T> int[][] batchUpdate(String sql, Collection<T> batchArgs, int batchSize,
+                                           ParameterizedPreparedStatementSetter<T> pss) {
+                if (sql.startsWith("INSERT INTO likes")) {
+                    flushWriting.countDown();
+                    await(readStarted);
+                }
+                return super.batchUpdate(sql, batchArgs, batchSize, pss);
+            }
+        };
+        BoundedCache<Long, Film> filmCache = new BoundedCache<>("films", 100, Duration.ofMinutes(1));
+        LikeWriteBehindBuffer buffer = startBuffer(flushing, filmCache, DatabaseInitializationMode.NEVER);
+        filmCache.put(1L, Film.builder().id(1L).build());
+        buffer.addLike(1L, 1L);
+
+        CompletableFuture<Void> flush = CompletableFuture.runAsync(buffer::flush);
+        await(flushWriting);
+        Set<Long> likes = buffer.readWithPending(() -> {
+            // Лайки прочитаны до коммита сброса, а буфер накладывается уже после него
+            Set<Long> stored = new HashSet<>(jdbcTemplate.queryForList(
+                    "SELECT user_id FROM likes WHERE film_id = 1", Long.class));
+            readStarted.countDown();
+            awaitCommittedLikes(1);
+
+            Map<Long, Set<Long>> likesByFilm = new HashMap<>(Map.of(1L, stored));
+            buffer.applyPending(likesByFilm, Set.of(1L));
+            return likesByFilm.get(1L);
+        });
+        flush.orTimeout(10, TimeUnit.SECONDS).join();
+
+        assertEquals(Set.of(1L), likes);
+        assertFalse(buffer.hasPending());
+        assertNull(filmCache.get(1L));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void awaitCommittedLikes(int expected) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (countLikes() != expected) {
+            if (System.nanoTime() > deadline) {
+                fail("Сброс не закоммитил лайки");
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    private LikeWriteBehindBuffer startBuffer() {
+        return startBuffer(DatabaseInitializationMode.NEVER);
+    }
+
+    private LikeWriteBehindBuffer startBuffer(DatabaseInitializationMode sqlInitMode) {
+        return startBuffer(jdbcTemplate, new BoundedCache<>("films", 100, Duration.ofMinutes(1)), sqlInitMode);
+    }
+
+    private LikeWriteBehindBuffer startBuffer(JdbcTemplate template, BoundedCache<Long, Film> filmCache,
+                                              DatabaseInitializationMode sqlInitMode) {
+        LikeWriteBehindBuffer buffer = new LikeWriteBehindBuffer(template, transactionManager,
+                filmCache, true, 1000, journalDir, false, sqlInitMode);
+        try {
+            buffer.start();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        buffers.add(buffer);
+        return buffer;
+    }
+
+    private int countLikes() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM likes", Integer.class);
+    }
+
+    private int countLikes(long filmId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM likes WHERE film_id = ?", Integer.class, filmId);
+    }
+
+    private long likesCount(long filmId) {
+        return jdbcTemplate.queryForObject("SELECT likes_count FROM films WHERE film_id = ?", Long.class, filmId);
+    }
+
+    private List<String> journalFiles() throws Exception {
+        try (Stream<Path> files = Files.list(journalDir)) {
+            return files.map(path -> path.getFileName().toString()).sorted().toList();
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.storage.index.LongCounter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LongCounterTests {
+
+    @Test
+    void shouldAccumulateValuesAcrossResize() {
+        LongCounter counter = new LongCounter(2);
+        for (long key = 0; key < 1000; key++) {
+            counter.add(key, key);
+            counter.add(key, 1);
+        }
+
+        assertEquals(1000, counter.size());
+        assertEquals(1, counter.get(0));
+        assertEquals(1000, counter.get(999));
+        assertEquals(0, counter.get(5000));
+    }
+
+    @Test
+    void shouldReturnTopKeysByValueThenByKey() {
+        LongCounter counter = new LongCounter(8);
+        counter.add(10, 3);
+        counter.add(4, 5);
+        counter.add(7, 3);
+        counter.add(1, 1);
+
+        assertArrayEquals(new long[]{4, 7, 10}, counter.top(3, key -> true));
+        assertArrayEquals(new long[]{7, 10, 1}, counter.top(5, key -> key != 4));
+        assertArrayEquals(new long[0], counter.top(0, key -> true));
+    }
+
+    @Test
+    void shouldRejectNegativeKey() {
+        assertThrows(IllegalArgumentException.class, () -> new LongCounter(4).add(-1, 1));
+    }
+}
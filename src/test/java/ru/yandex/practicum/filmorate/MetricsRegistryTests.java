@@ -0,0 +1,88 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.cache.BoundedCache;
+import ru.yandex.practicum.filmorate.metrics.Histogram;
+import ru.yandex.practicum.filmorate.metrics.MetricsRegistry;
+import ru.yandex.practicum.filmorate.metrics.QueryStats;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MetricsRegistryTests {
+
+    @Test
+    void shouldEstimateQuantilesWithinBucketError() {
+        Histogram histogram = new Histogram();
+        for (long value = 1; value <= 1000; value++) {
+            histogram.record(value);
+        }
+
+        assertEquals(1000, histogram.count());
+        assertEquals(500_500, histogram.sum());
+        assertEquals(1000, histogram.max());
+        assertEquals(500, histogram.quantile(0.5), 500 * 0.125);
+        assertEquals(990, histogram.quantile(0.99), 990 * 0.125);
+        assertEquals(1000, histogram.quantile(1.0));
+    }
+
+    @Test
+    void shouldKeepSmallValuesExact() {
+        Histogram histogram = new Histogram();
+        histogram.record(0);
+        histogram.record(3);
+        histogram.record(3);
+        histogram.record(7);
+
+        assertEquals(3, histogram.quantile(0.5));
+        assertEquals(7, histogram.quantile(0.99));
+        assertEquals(0, new Histogram().quantile(0.5));
+    }
+
+    @Test
+    void shouldWritePrometheusTextFormat() {
+        BoundedCache<Long, String> cache = new BoundedCache<>("films", 10, Duration.ofMinutes(1));
+        cache.get(1L, String::valueOf);
+        cache.get(1L);
+        MetricsRegistry registry = new MetricsRegistry(List.of(cache));
+        registry.methodLatency("FilmDbStorageImpl.getFilmById").record(2_000_000);
+
+        QueryStats stats = QueryStats.begin();
+        stats.statementExecuted("SELECT 1");
+        stats.statementExecuted("SELECT 1");
+        stats.rowRead();
+        QueryStats.end();
+        registry.requestMetrics("FilmController.getFilmById").record(3_000_000, stats);
+
+        String text = registry.scrape();
+
+        assertTrue(text.contains("# TYPE filmorate_method_duration_seconds summary\n"));
+        assertTrue(text.contains("filmorate_method_duration_seconds_count{method=\"FilmDbStorageImpl.getFilmById\"} 1\n"));
+        assertTrue(text.contains("filmorate_http_request_queries{handler=\"FilmController.getFilmById\",quantile=\"0.99\"} 2\n"));
+        assertTrue(text.contains("filmorate_http_request_rows_max{handler=\"FilmController.getFilmById\"} 1\n"));
+        assertTrue(text.contains("filmorate_cache_hits_total{cache=\"films\"} 1\n"));
+        assertTrue(text.contains("filmorate_cache_hit_ratio{cache=\"films\"} 0.5\n"));
+    }
+
+    @Test
+    void shouldPropagateQueryStatsToTasks() throws InterruptedException {
+        QueryStats stats = QueryStats.begin();
+        AtomicReference<QueryStats> seen = new AtomicReference<>();
+        Runnable task = QueryStats.propagate(() -> {
+            seen.set(QueryStats.current());
+            QueryStats.current().statementExecuted("SELECT 1");
+        });
+        QueryStats.end();
+
+        Thread thread = new Thread(task);
+        thread.start();
+        thread.join();
+
+        assertSame(stats, seen.get());
+        assertEquals(1, stats.getStatements());
+        assertNull(QueryStats.current());
+    }
+}
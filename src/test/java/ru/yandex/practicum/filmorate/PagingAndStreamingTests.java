@@ -0,0 +1,165 @@
+package ru.yandex.practicum.filmorate;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.config.CacheConfig;
+import ru.yandex.practicum.filmorate.config.ConcurrencyConfig;
+import ru.yandex.practicum.filmorate.controller.FilmController;
+import ru.yandex.practicum.filmorate.controller.NdjsonWriter;
+import ru.yandex.practicum.filmorate.controller.UserController;
+import ru.yandex.practicum.filmorate.service.BatchLoader;
+import ru.yandex.practicum.filmorate.service.FilmDataLoader;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.GenreService;
+import ru.yandex.practicum.filmorate.service.MpaService;
+import ru.yandex.practicum.filmorate.service.ReferenceDataRegistry;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.FilmDbStorageImpl;
+import ru.yandex.practicum.filmorate.storage.LikeWriteBehindBuffer;
+import ru.yandex.practicum.filmorate.storage.UserDbStorageImpl;
+import ru.yandex.practicum.filmorate.storage.dao.GenreDao;
+import ru.yandex.practicum.filmorate.storage.dao.MpaDao;
+import ru.yandex.practicum.filmorate.storage.index.AutocompleteIndex;
+import ru.yandex.practicum.filmorate.storage.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.index.FriendGraph;
+import ru.yandex.practicum.filmorate.storage.index.LikeIndex;
+import ru.yandex.practicum.filmorate.storage.index.PopularityLeaderboard;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@JdbcTest
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@Import({
+        FilmService.class,
+        UserService.class,
+        MpaService.class,
+        GenreService.class,
+        ReferenceDataRegistry.class,
+        FilmDataLoader.class,
+        BatchLoader.class,
+        ConcurrencyConfig.class,
+        UserDbStorageImpl.class,
+        FilmDbStorageImpl.class,
+        GenreDao.class,
+        MpaDao.class,
+        PopularityLeaderboard.class,
+        FriendGraph.class,
+        LikeIndex.class,
+        FilmSearchIndex.class,
+        AutocompleteIndex.class,
+        CacheConfig.class,
+        LikeWriteBehindBuffer.class,
+        NdjsonWriter.class,
+        JacksonAutoConfiguration.class
+})
+@Sql(scripts = {"/schema.sql", "/data.sql"}, executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+// Потоковый ответ пишется в другом потоке и должен видеть данные теста
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class PagingAndStreamingTests {
+    private final FilmService filmService;
+    private final UserService userService;
+    private final NdjsonWriter ndjsonWriter;
+    private final ObjectMapper objectMapper;
+    private final JdbcTemplate jdbcTemplate;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        for (long id = 1; id <= 5; id++) {
+            jdbcTemplate.update("INSERT INTO films (film_id, name, description, release_date, duration, mpa_id) "
+                    + "VALUES (?, ?, 'Description', '2000-01-01', 100, 1)", id, "Film " + id);
+            jdbcTemplate.update("INSERT INTO users (user_id, email, login, name, birthday) "
+                    + "VALUES (?, ?, ?, 'Name', '1990-01-01')", id, "user" + id + "@mail.ru", "user" + id);
+        }
+        mockMvc = MockMvcBuilders.standaloneSetup(
+                        new FilmController(filmService, ndjsonWriter),
+                        new UserController(userService, filmService, ndjsonWriter))
+                .build();
+    }
+
+    @Test
+    void shouldPageFilmsByKey() throws Exception {
+        assertEquals(List.of(1L, 2L), ids(json(get("/films").param("limit", "2"))));
+        assertEquals(List.of(3L, 4L), ids(json(get("/films").param("after_id", "2").param("limit", "2"))));
+        assertEquals(List.of(5L), ids(json(get("/films").param("after_id", "4").param("limit", "2"))));
+        assertEquals(List.of(), ids(json(get("/films").param("after_id", "5").param("limit", "2"))));
+    }
+
+    @Test
+    void shouldPageUsersByKey() throws Exception {
+        assertEquals(List.of(1L, 2L, 3L), ids(json(get("/users").param("limit", "3"))));
+        assertEquals(List.of(4L, 5L), ids(json(get("/users").param("after_id", "3").param("limit", "3"))));
+    }
+
+    @Test
+    void shouldStreamFilmsWhateverTheAcceptHeader() throws Exception {
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), ids(ndjson(get("/films").param("format", "ndjson")
+                .accept(MediaType.APPLICATION_JSON))));
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), ids(ndjson(get("/films").param("format", "ndjson"))));
+    }
+
+    @Test
+    void shouldStreamUsers() throws Exception {
+        List<JsonNode> users = ndjson(get("/users").param("format", "ndjson").accept(MediaType.ALL));
+
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), ids(users));
+        assertEquals("user1", users.get(0).get("login").asText());
+    }
+
+    private List<JsonNode> json(MockHttpServletRequestBuilder builder) throws Exception {
+        String body = mockMvc.perform(builder)
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+        List<JsonNode> result = new ArrayList<>();
+        objectMapper.readTree(body).forEach(result::add);
+        return result;
+    }
+
+    private List<JsonNode> ndjson(MockHttpServletRequestBuilder builder) throws Exception {
+        MvcResult started = mockMvc.perform(builder)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+
+        List<JsonNode> result = new ArrayList<>();
+        for (String line : body.split("\n")) {
+            result.add(objectMapper.readTree(line));
+        }
+        return result;
+    }
+
+    private static List<Long> ids(List<JsonNode> rows) {
+        return rows.stream().map(row -> row.get("id").asLong()).toList();
+    }
+}
@@ -0,0 +1,108 @@
+package ru.yandex.practicum.filmorate;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.sql.init.DatabaseInitializationMode;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.cache.BoundedCache;
+import ru.yandex.practicum.filmorate.storage.LikeWriteBehindBuffer;
+import ru.yandex.practicum.filmorate.storage.index.PopularityLeaderboard;
+
+import javax.sql.DataSource;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@JdbcTest
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@Sql(scripts = {"/schema.sql", "/data.sql"}, executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+// Изменения рейтинга применяются после коммита, поэтому тест работает без общей транзакции
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class PopularityLeaderboardReconcileTests {
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+
+    private Runnable duringRead = () -> {
+    };
+    private PopularityLeaderboard leaderboard;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("INSERT INTO films (film_id, name, description, release_date, duration, mpa_id, "
+                + "likes_count) VALUES "
+                + "(1, 'First', 'Description', '2000-01-01', 100, 1, 5), "
+                + "(2, 'Second', 'Description', '2001-01-01', 100, 1, 3)");
+
+        // Позволяет выполнить «параллельное» изменение ровно между чтением фильмов и применением сверки
+        JdbcTemplate reading = new JdbcTemplate(dataSource) {
+            @Override
+            public void query(String sql, RowCallbackHandler rch) {
+                super.query(sql, rch);
+                if (sql.contains("likes_count")) {
+                    duringRead.run();
+                }
+            }
+        };
+        LikeWriteBehindBuffer likeBuffer = new LikeWriteBehindBuffer(jdbcTemplate, null,
+                new BoundedCache<>("films", 10, Duration.ofMinutes(1)), false, 1000, Path.of("unused"), false,
+                DatabaseInitializationMode.NEVER);
+        leaderboard = new PopularityLeaderboard(reading, likeBuffer);
+        leaderboard.warmUp();
+    }
+
+    @Test
+    void shouldLoadCountsAndRepairDrift() {
+        assertEquals(List.of(1L, 2L), leaderboard.top(10));
+
+        jdbcTemplate.update("UPDATE films SET likes_count = 7 WHERE film_id = 2");
+        leaderboard.reconcile();
+
+        assertEquals(7L, leaderboard.getLikes(2L));
+        assertEquals(List.of(2L, 1L), leaderboard.top(10));
+    }
+
+    @Test
+    void shouldKeepLikeAppliedDuringReconcile() {
+        duringRead = () -> {
+            jdbcTemplate.update("UPDATE films SET likes_count = likes_count + 1 WHERE film_id = 2");
+            leaderboard.increment(2L);
+        };
+
+        leaderboard.reconcile();
+
+        assertEquals(4L, leaderboard.getLikes(2L));
+    }
+
+    @Test
+    void shouldKeepFilmCreatedDuringReconcile() {
+        duringRead = () -> {
+            jdbcTemplate.update("INSERT INTO films (film_id, name, description, release_date, duration, mpa_id) "
+                    + "VALUES (3, 'Third', 'Description', '2002-01-01', 100, 1)");
+            leaderboard.registerFilm(3L, 2002, new long[0]);
+        };
+
+        leaderboard.reconcile();
+
+        assertEquals(List.of(1L, 2L, 3L), leaderboard.top(10));
+    }
+
+    @Test
+    void shouldRemoveOnlyDeletedFilms() {
+        jdbcTemplate.update("DELETE FROM films WHERE film_id = 1");
+
+        leaderboard.reconcile();
+
+        assertEquals(List.of(2L), leaderboard.top(10));
+    }
+}
@@ -0,0 +1,88 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.storage.index.PopularityLeaderboard;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PopularityLeaderboardTests {
+    private PopularityLeaderboard leaderboard;
+
+    @BeforeEach
+    void setUp() {
+        leaderboard = new PopularityLeaderboard(null, null);
+        leaderboard.registerFilm(1L, 1999, new long[0]);
+        leaderboard.registerFilm(2L, 1999, new long[0]);
+        leaderboard.registerFilm(3L, 1999, new long[0]);
+    }
+
+    @Test
+    void shouldOrderFilmsByLikesDescending() {
+        leaderboard.increment(2L);
+        leaderboard.increment(2L);
+        leaderboard.increment(3L);
+
+        assertEquals(List.of(2L, 3L, 1L), leaderboard.top(10));
+    }
+
+    @Test
+    void shouldLimitResultToRequestedCount() {
+        leaderboard.increment(3L);
+
+        assertEquals(List.of(3L, 1L), leaderboard.top(2));
+    }
+
+    @Test
+    void shouldMoveFilmDownAfterLikeRemoved() {
+        leaderboard.increment(1L);
+        leaderboard.increment(2L);
+        leaderboard.increment(2L);
+        leaderboard.decrement(2L);
+        leaderboard.decrement(2L);
+
+        assertEquals(List.of(1L, 2L, 3L), leaderboard.top(3));
+        assertEquals(0L, leaderboard.getLikes(2L));
+    }
+
+    @Test
+    void shouldNotReturnRemovedFilm() {
+        leaderboard.increment(1L);
+        leaderboard.removeFilm(1L);
+
+        assertEquals(List.of(2L, 3L), leaderboard.top(10));
+    }
+
+    @Test
+    void shouldFilterByGenreAndYear() {
+        leaderboard.registerFilm(1L, 2000, new long[]{2L, 1L});
+        leaderboard.registerFilm(2L, 2000, new long[]{2L});
+        leaderboard.registerFilm(3L, 2010, new long[]{1L});
+        leaderboard.increment(3L);
+        leaderboard.increment(2L);
+        leaderboard.increment(2L);
+
+        assertEquals(List.of(3L, 1L), leaderboard.top(10, 1L, null));
+        assertEquals(List.of(2L, 1L), leaderboard.top(10, null, 2000));
+        assertEquals(List.of(1L), leaderboard.top(10, 1L, 2000));
+        assertEquals(List.of(), leaderboard.top(10, 3L, null));
+        assertEquals(List.of(), leaderboard.top(10, null, 1990));
+    }
+
+    @Test
+    void shouldMoveFilmBetweenFilteredRankingsOnUpdate() {
+        leaderboard.registerFilm(1L, 2000, new long[]{1L});
+        leaderboard.increment(1L);
+        leaderboard.registerFilm(1L, 2001, new long[]{2L});
+
+        assertEquals(List.of(), leaderboard.top(10, 1L, null));
+        assertEquals(List.of(), leaderboard.top(10, null, 2000));
+        assertEquals(List.of(1L), leaderboard.top(10, 2L, 2001));
+        assertEquals(1L, leaderboard.getLikes(1L));
+
+        leaderboard.removeFilm(1L);
+        assertEquals(List.of(), leaderboard.top(10, 2L, null));
+    }
+}
@@ -0,0 +1,52 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Suggestion;
+import ru.yandex.practicum.filmorate.storage.index.PrefixSuggester;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PrefixSuggesterTests {
+    private PrefixSuggester suggester;
+
+    @BeforeEach
+    void setUp() {
+        suggester = new PrefixSuggester();
+        suggester.put(1L, "Матрица");
+        suggester.put(2L, "Мастер и Маргарита");
+        suggester.put(3L, "Ёжик в тумане");
+        suggester.put(4L, "Матрица");
+        suggester.put(5L, "Мат");
+    }
+
+    @Test
+    void shouldSuggestInAlphabeticalOrderIgnoringCase() {
+        assertEquals(List.of(
+                new Suggestion(2L, "Мастер и Маргарита"),
+                new Suggestion(5L, "Мат"),
+                new Suggestion(1L, "Матрица"),
+                new Suggestion(4L, "Матрица")), suggester.suggest("ма", 10));
+        assertEquals(List.of(new Suggestion(3L, "Ёжик в тумане")), suggester.suggest("еж", 10));
+    }
+
+    @Test
+    void shouldRespectLimit() {
+        assertEquals(List.of(new Suggestion(5L, "Мат"), new Suggestion(1L, "Матрица")),
+                suggester.suggest("МАТ", 2));
+        assertEquals(List.of(), suggester.suggest("", 10));
+        assertEquals(List.of(), suggester.suggest("я", 10));
+    }
+
+    @Test
+    void shouldReplaceAndRemoveValues() {
+        suggester.put(1L, "Брат");
+        suggester.remove(5L);
+
+        assertEquals(List.of(new Suggestion(4L, "Матрица")), suggester.suggest("мат", 10));
+        assertEquals(List.of(new Suggestion(1L, "Брат")), suggester.suggest("б", 10));
+        assertEquals(4, suggester.size());
+    }
+}
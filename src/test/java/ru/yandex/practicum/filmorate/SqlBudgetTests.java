@@ -0,0 +1,117 @@
+package ru.yandex.practicum.filmorate;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.jdbc.Sql;
+import ru.yandex.practicum.filmorate.config.CacheConfig;
+import ru.yandex.practicum.filmorate.config.QueryTrackingConfig;
+import ru.yandex.practicum.filmorate.exception.ErrorHandler;
+import ru.yandex.practicum.filmorate.exception.ErrorResponse;
+import ru.yandex.practicum.filmorate.exception.SqlBudgetExceededException;
+import ru.yandex.practicum.filmorate.metrics.MetricsRegistry;
+import ru.yandex.practicum.filmorate.metrics.QueryStats;
+import ru.yandex.practicum.filmorate.metrics.SqlBudget;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.storage.FilmDbStorageImpl;
+import ru.yandex.practicum.filmorate.storage.LikeWriteBehindBuffer;
+import ru.yandex.practicum.filmorate.storage.index.AutocompleteIndex;
+import ru.yandex.practicum.filmorate.storage.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.index.LikeIndex;
+import ru.yandex.practicum.filmorate.storage.index.PopularityLeaderboard;
+
+import java.time.LocalDate;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@JdbcTest
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@Import({
+        FilmDbStorageImpl.class,
+        PopularityLeaderboard.class,
+        LikeIndex.class,
+        FilmSearchIndex.class,
+        AutocompleteIndex.class,
+        CacheConfig.class,
+        LikeWriteBehindBuffer.class,
+        MetricsRegistry.class,
+        SqlBudget.class,
+        QueryTrackingConfig.class
+})
+@TestPropertySource(properties = {
+        "filmorate.sql-budget.mode=reject",
+        "filmorate.sql-budget.max-statements=5",
+        "filmorate.sql-budget.max-repeats=3"
+})
+@Sql(scripts = {"/schema.sql", "/data.sql"}, executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+class SqlBudgetTests {
+    private final FilmDbStorageImpl filmStorage;
+    private final JdbcTemplate jdbcTemplate;
+    private final SqlBudget sqlBudget;
+
+    @Test
+    void createFilmShouldNotReadFilmBack() {
+        Film film = Film.builder()
+                .name("Фильм")
+                .description("Описание")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(120)
+                .mpa(new Mpa(1L, null))
+                .genres(new LinkedHashSet<>(List.of(new Genre(1L, null), new Genre(2L, null))))
+                .build();
+
+        QueryStats stats = sqlBudget.track("createFilm", () -> filmStorage.createFilm(film));
+
+        // Вставка фильма и одна пакетная вставка жанров
+        assertEquals(2, stats.getStatements());
+        assertTrue(stats.getRepeatedStatements(2).isEmpty());
+    }
+
+    @Test
+    void shouldDetectStatementsRepeatedInLoop() {
+        QueryStats stats = sqlBudget.track("genresInLoop", () -> {
+            for (long id = 1; id <= 3; id++) {
+                jdbcTemplate.queryForObject("SELECT name FROM genres WHERE genre_id = ?", String.class, id);
+            }
+        });
+
+        assertEquals(Map.of("SELECT name FROM genres WHERE genre_id = ?", 3L), stats.getRepeatedStatements(3));
+        assertEquals(3, stats.getRows());
+    }
+
+    @Test
+    void shouldTreatInlinedLiteralsAsSameShape() {
+        QueryStats stats = QueryStats.measure(() -> {
+            jdbcTemplate.queryForList("SELECT name FROM genres WHERE genre_id IN (1, 2, 3)");
+            jdbcTemplate.queryForList("SELECT name FROM genres   WHERE genre_id IN (4, 5)");
+        });
+
+        assertEquals(Map.of("SELECT name FROM genres WHERE genre_id IN (?)", 2L), stats.getRepeatedStatements(2));
+        assertEquals(5, stats.getRows());
+    }
+
+    @Test
+    void shouldRejectStatementsOverBudget() {
+        SqlBudgetExceededException e = assertThrows(SqlBudgetExceededException.class,
+                () -> sqlBudget.track("tooManyStatements", () -> {
+                    for (int i = 0; i < 6; i++) {
+                        jdbcTemplate.queryForObject("SELECT COUNT(*) FROM genres", Integer.class);
+                    }
+                }));
+        assertNull(QueryStats.current());
+
+        ErrorResponse response = new ErrorHandler().handleSqlBudgetExceededException(e);
+        assertEquals("Превышен бюджет SQL-запросов на один HTTP-запрос: 5", response.error());
+    }
+}
@@ -0,0 +1,134 @@
+package ru.yandex.practicum.filmorate;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.config.CacheConfig;
+import ru.yandex.practicum.filmorate.config.ConcurrencyConfig;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.service.BatchLoader;
+import ru.yandex.practicum.filmorate.service.FilmDataLoader;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.GenreService;
+import ru.yandex.practicum.filmorate.service.MpaService;
+import ru.yandex.practicum.filmorate.service.ReferenceDataRegistry;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.FilmDbStorageImpl;
+import ru.yandex.practicum.filmorate.storage.LikeWriteBehindBuffer;
+import ru.yandex.practicum.filmorate.storage.UserDbStorageImpl;
+import ru.yandex.practicum.filmorate.storage.dao.GenreDao;
+import ru.yandex.practicum.filmorate.storage.dao.MpaDao;
+import ru.yandex.practicum.filmorate.storage.index.AutocompleteIndex;
+import ru.yandex.practicum.filmorate.storage.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.index.FriendGraph;
+import ru.yandex.practicum.filmorate.storage.index.LikeIndex;
+import ru.yandex.practicum.filmorate.storage.index.PopularityLeaderboard;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@JdbcTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@Import({
+        FilmService.class,
+        UserService.class,
+        MpaService.class,
+        GenreService.class,
+        ReferenceDataRegistry.class,
+        FilmDataLoader.class,
+        BatchLoader.class,
+        ConcurrencyConfig.class,
+        UserDbStorageImpl.class,
+        FilmDbStorageImpl.class,
+        GenreDao.class,
+        MpaDao.class,
+        PopularityLeaderboard.class,
+        FriendGraph.class,
+        LikeIndex.class,
+        FilmSearchIndex.class,
+        AutocompleteIndex.class,
+        CacheConfig.class,
+        LikeWriteBehindBuffer.class
+})
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:streaming-pool;DB_CLOSE_DELAY=-1",
+        "spring.datasource.hikari.maximum-pool-size=" + StreamingPoolTests.POOL_SIZE,
+        "spring.datasource.hikari.connection-timeout=1000"
+})
+@Sql(scripts = {"/schema.sql", "/data.sql"}, executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+// Выгрузки идут в своих потоках и не должны делить соединение с транзакцией теста
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class StreamingPoolTests {
+    static final int POOL_SIZE = 2;
+    private static final int FILM_COUNT = 1200;
+
+    private final FilmService filmService;
+    private final JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        List<Object[]> films = new ArrayList<>();
+        List<Object[]> genres = new ArrayList<>();
+        for (long id = 1; id <= FILM_COUNT; id++) {
+            films.add(new Object[]{id, "Film " + id});
+            genres.add(new Object[]{id, id % 6 + 1});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO films (film_id, name, description, release_date, duration, mpa_id) "
+                + "VALUES (?, ?, 'Description', '2000-01-01', 100, 1)", films);
+        jdbcTemplate.batchUpdate("INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)", genres);
+    }
+
+    @Test
+    void shouldServeAsManyConcurrentStreamsAsPoolConnections() {
+        // Каждая выгрузка ждёт остальных на первом фильме: если бы они держали соединения между
+        // страницами, догрузка жанров не получила бы соединение до тайм-аута пула
+        CyclicBarrier allStarted = new CyclicBarrier(POOL_SIZE);
+        List<CompletableFuture<List<Film>>> streams = new ArrayList<>();
+        for (int i = 0; i < POOL_SIZE; i++) {
+            streams.add(CompletableFuture.supplyAsync(() -> {
+                List<Film> received = new ArrayList<>();
+                filmService.streamFilms(film -> {
+                    if (received.isEmpty()) {
+                        await(allStarted);
+                    }
+                    received.add(film);
+                });
+                return received;
+            }));
+        }
+
+        for (CompletableFuture<List<Film>> stream : streams) {
+            List<Film> received = stream.orTimeout(30, TimeUnit.SECONDS).join();
+            assertEquals(LongStream.rangeClosed(1, FILM_COUNT).boxed().toList(),
+                    received.stream().map(Film::getId).toList());
+            Film last = received.get(FILM_COUNT - 1);
+            assertEquals(List.of((long) FILM_COUNT % 6 + 1),
+                    last.getGenres().stream().map(Genre::getId).toList());
+        }
+    }
+
+    private static void await(CyclicBarrier barrier) {
+        try {
+            barrier.await(10, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}